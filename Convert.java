@@ -1,3 +1,5 @@
+import java.util.Arrays;
+
 /**
  * Utility class for converting images to/from RBG format.
  *
@@ -15,29 +17,43 @@ public class Convert {
     private static void validateCommand(String[] args) {
 
         if (args.length != 2) {
-            System.err.print("Usage: java Convert SRC DST\n");
+            System.err.print("Usage: java Convert [-metrics] [-quality Q]"
+                    + " [-compression N] SRC DST\n");
+            System.err.print("       java Convert [-metrics] -batch"
+                    + " DIR|GLOB|MANIFEST [EXT] [-threads N]\n");
+            System.err.print("       java Convert [-metrics] -serve [SOCKET]"
+                    + " [-threads N] [-queue N]\n");
             System.exit(1);
         } else {
-            String src = args[0];
-            String dst = args[1];
-
-            if (!isTxt(src) && !isTxt(dst)) {
-                System.err.print("One of the images must end with .txt\n");
-                System.exit(1);
-            } else if (isTxt(src) && isTxt(dst)) {
-                System.err.print("One of the images must end with .txt\n");
-                System.exit(1);
-            }
-            if (!isImage(src) && !isTxt(src)) {
-                System.err.print("Unsupported file format: " + src + "\n");
-                System.exit(1);
-            } else if (!isImage(dst) && !isTxt(dst)) {
-                System.err.print("Unsupported file format: " + dst + "\n");
+            String error = checkPair(args[0], args[1]);
+            if (error != null) {
+                System.err.print(error + "\n");
                 System.exit(1);
             }
         }
     }
 
+    /**
+     * Check that one file can be converted to the other.
+     * 
+     * @param src source path
+     * @param dst destination path
+     * @return an error message, or null if the pair is valid
+     */
+    static String checkPair(String src, String dst) {
+        if (!isRaw(src) && !isRaw(dst)) {
+            return "One of the images must end with .txt or .rgbb";
+        } else if (isTxt(src) && isTxt(dst) || isRgbb(src) && isRgbb(dst)) {
+            return "One of the images must end with .txt or .rgbb";
+        }
+        if (!isImage(src) && !isRaw(src)) {
+            return "Unsupported file format: " + src;
+        } else if (!isImage(dst) && !isRaw(dst)) {
+            return "Unsupported file format: " + dst;
+        }
+        return null;
+    }
+
     /**
      * Check if an input is an image.
      * 
@@ -45,41 +61,166 @@ public class Convert {
      * @return true if an image
      */
     private static boolean isImage(String filename) {
-        if (filename.substring(filename.length() - 4).equals(".png")
-                || filename.substring(filename.length() - 4).equals(".jpg")) {
+        if (filename.endsWith(".png") || filename.endsWith(".jpg")) {
             return true;
         }
         return false;
     }
 
     /**
-     * Check if file is a txt file.
+     * Check if file is a txt file, which may be gzip compressed.
      * 
      * @param filename src or dst path
      * @return true if a txt file
      */
     private static boolean isTxt(String filename) {
-        if (filename.substring(filename.length() - 4).equals(".txt")) {
+        if (filename.endsWith(".txt") || filename.endsWith(".txt.gz")) {
             return true;
         }
         return false;
     }
 
     /**
-     * Converts a png/jpg image to RGB format or vice versa.
+     * Check if file is in the binary RGBB format.
      * 
-     * @param args command-line arguments (src and dst path)
+     * @param filename src or dst path
+     * @return true if an rgbb file
+     */
+    private static boolean isRgbb(String filename) {
+        return filename.endsWith(".rgbb");
+    }
+
+    /**
+     * Check if file is in one of the RGB formats.
+     * 
+     * @param filename src or dst path
+     * @return true if a txt or rgbb file
+     */
+    private static boolean isRaw(String filename) {
+        return isTxt(filename) || isRgbb(filename);
+    }
+
+    /**
+     * Converts a png/jpg image to RGB format or vice versa. Either side may
+     * also be a binary RGBB file, for example to cache a parsed txt file.
+     * With -batch, converts many files in one run (see ConvertBatch), and
+     * with -serve, converts files on request (see ConvertServer).
+     * Options -quality (JPEG, 0 to 100) and -compression (PNG, 0 to 9)
+     * tune the image encoder. With -metrics, a summary of RGBMetrics is
+     * printed to standard error when the program exits.
+     * 
+     * @param args command-line arguments (options, src and dst path)
      * @throws Exception if file not found or incorrect format
      */
     public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("-metrics")) {
+            args = Arrays.copyOfRange(args, 1, args.length);
+            RGBMetrics metrics = RGBMetrics.get();
+            metrics.setEnabled(true);
+            Runtime.getRuntime().addShutdownHook(new Thread(() ->
+                    System.err.print(metrics.getSummary())));
+        }
+        if (args.length > 0
+                && (args[0].equals("-batch") || args[0].equals("-serve"))) {
+            int status = args[0].equals("-batch") ? ConvertBatch.run(args)
+                    : ConvertServer.run(args);
+            if (status != 0) {
+                System.exit(status);
+            }
+            return;
+        }
+        int quality = ImageEncoder.DEFAULT;
+        int compression = ImageEncoder.DEFAULT;
+        ImageEncoder encoder = null;
+        int i = 0;
+        try {
+            for (; i + 2 < args.length; i += 2) {
+                if (args[i].equals("-quality")) {
+                    quality = Integer.parseInt(args[i + 1]);
+                } else if (args[i].equals("-compression")) {
+                    compression = Integer.parseInt(args[i + 1]);
+                } else {
+                    break;
+                }
+            }
+            encoder = new ImageEncoder(quality, compression);
+        } catch (IllegalArgumentException e) {
+            System.err.print(e.getMessage() + "\n");
+            System.exit(1);
+        }
+        args = Arrays.copyOfRange(args, i, args.length);
         validateCommand(args);
-        String src = args[0];
-        String dst = args[1];
+        convert(args[0], args[1], encoder);
+    }
+
+    /**
+     * Converts one file, catching any error.
+     * 
+     * @param pair source and destination paths
+     * @return an error message, or null if the file was converted
+     */
+    static String convertPair(String[] pair) {
+        String error;
+        if (pair.length != 2) {
+            error = "expected SRC DST";
+        } else {
+            error = checkPair(pair[0], pair[1]);
+        }
+        if (error == null) {
+            try {
+                convert(pair[0], pair[1]);
+            } catch (Exception e) {
+                error = e.getMessage() == null ? e.toString() : e.getMessage();
+            }
+        }
+        return error;
+    }
 
+    /**
+     * Converts one file, which must be a valid pair according to checkPair.
+     * Images are written with the encoder's default settings.
+     * 
+     * @param src source path
+     * @param dst destination path
+     * @throws Exception if file not found or incorrect format
+     */
+    static void convert(String src, String dst) throws Exception {
+        convert(src, dst, new ImageEncoder());
+    }
+
+    /**
+     * Converts one file, which must be a valid pair according to checkPair.
+     * 
+     * @param src source path
+     * @param dst destination path
+     * @param encoder settings for writing a png/jpg destination
+     * @throws Exception if file not found or incorrect format
+     */
+    static void convert(String src, String dst, ImageEncoder encoder)
+            throws Exception {
         if (isImage(src) && isTxt(dst)) {
-            RGBFileFormat.save(dst, new Picture(src));
+            ConvertPipeline.imageToTxt(src, dst);
         } else if (isImage(dst) && isTxt(src)) {
-            RGBFileFormat.load(src);
+            if (dst.endsWith(".png")) {
+                ConvertPipeline.txtToPng(src, dst, encoder.compression());
+            } else {
+                encoder.write(dst, RGBFileFormat.load(src));
+            }
+        } else if (isRgbb(dst)) {
+            Picture picture;
+            if (isTxt(src)) {
+                picture = RGBFileFormat.load(src);
+            } else {
+                picture = new Picture(src);
+            }
+            RGBBFileFormat.save(dst, picture);
+        } else if (isRgbb(src)) {
+            Picture picture = RGBBFileFormat.load(src);
+            if (isTxt(dst)) {
+                RGBFileFormat.save(dst, picture);
+            } else {
+                encoder.write(dst, picture);
+            }
         }
     }
 }
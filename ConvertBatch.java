@@ -0,0 +1,219 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Batch mode for Convert: converts many files in one JVM on a pool of worker
+ * threads. The files to convert are given by one of:
+ * <ul>
+ * <li>a directory, whose files are converted to extension EXT</li>
+ * <li>a glob such as "scans/*.png", whose matches are converted to EXT</li>
+ * <li>a manifest file with one "SRC DST" pair per line</li>
+ * </ul>
+ * A file that fails to convert is reported without stopping the batch, and
+ * a summary is printed at the end. Files that would be converted to the same
+ * destination, such as a.png and a.jpg to a.txt, all fail instead of
+ * overwriting each other.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+public class ConvertBatch {
+
+    private static final String USAGE =
+            "Usage: java Convert -batch DIR|GLOB|MANIFEST [EXT] [-threads N]";
+
+    private final List<String[]> pairs = new ArrayList<>();
+    private final Map<Path, List<String>> sources = new HashMap<>();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong bytesRead = new AtomicLong();
+
+    /**
+     * Runs a batch from the command line.
+     *
+     * @param args command-line arguments, starting with "-batch"
+     * @return exit status: 0 if every file was converted, 1 otherwise
+     * @throws IOException if the directory or manifest cannot be read
+     */
+    static int run(String[] args) throws IOException {
+        String source = null;
+        String ext = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("-threads") && i + 1 < args.length) {
+                try {
+                    threads = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    threads = 0;
+                }
+            } else if (source == null) {
+                source = args[i];
+            } else if (ext == null) {
+                ext = args[i].startsWith(".") ? args[i].substring(1) : args[i];
+            } else {
+                source = null;
+                break;
+            }
+        }
+        if (source == null || threads < 1) {
+            System.err.print(USAGE + "\n");
+            return 1;
+        }
+
+        boolean directory = new File(source).isDirectory();
+        if ((directory || isGlob(source)) && ext == null) {
+            System.err.print("EXT is required for a directory or glob\n");
+            return 1;
+        }
+
+        ConvertBatch batch = new ConvertBatch();
+        if (directory) {
+            batch.addDirectory(Paths.get(source), "*", ext);
+        } else if (isGlob(source)) {
+            Path parent = Paths.get(source).getParent();
+            batch.addDirectory(parent == null ? Paths.get(".") : parent,
+                    Paths.get(source).getFileName().toString(), ext);
+        } else {
+            batch.addManifest(Paths.get(source));
+        }
+        return batch.convertAll(threads);
+    }
+
+    /**
+     * Check if a path contains glob characters.
+     *
+     * @param source the path
+     * @return true if it is a glob
+     */
+    private static boolean isGlob(String source) {
+        return source.indexOf('*') >= 0 || source.indexOf('?') >= 0
+                || source.indexOf('[') >= 0 || source.indexOf('{') >= 0;
+    }
+
+    /**
+     * Add each file in a directory that matches a glob and can be converted
+     * to the given extension. The extension replaces ".txt.gz" as a whole,
+     * so a.txt.gz is converted to a.png rather than a.txt.png.
+     *
+     * @param dir the directory
+     * @param glob pattern for file names
+     * @param ext extension of the converted files
+     * @throws IOException if the directory cannot be read
+     */
+    private void addDirectory(Path dir, String glob, String ext)
+            throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir,
+                glob)) {
+            for (Path file : files) {
+                String src = file.toString();
+                int dot = src.endsWith(".txt.gz") ? src.length() - 7
+                        : src.lastIndexOf('.');
+                if (Files.isRegularFile(file) && dot > 0) {
+                    String dst = src.substring(0, dot + 1) + ext;
+                    if (Convert.checkPair(src, dst) == null) {
+                        pairs.add(new String[] {src, dst});
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Add each "SRC DST" pair listed in a manifest. Blank lines and lines
+     * starting with '#' are skipped.
+     *
+     * @param manifest the manifest file
+     * @throws IOException if the manifest cannot be read
+     */
+    private void addManifest(Path manifest) throws IOException {
+        for (String line : Files.readAllLines(manifest)) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                pairs.add(line.split("\\s+", 2));
+            }
+        }
+    }
+
+    /**
+     * Convert every pair on a pool of threads and print a summary.
+     *
+     * @param threads number of worker threads
+     * @return exit status: 0 if every file was converted, 1 otherwise
+     */
+    private int convertAll(int threads) {
+        long start = System.nanoTime();
+        for (String[] pair : pairs) {
+            if (pair.length == 2) {
+                sources.computeIfAbsent(destination(pair),
+                        d -> new ArrayList<>()).add(pair[0]);
+            }
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (String[] pair : pairs) {
+            pool.execute(() -> convert(pair));
+        }
+        pool.shutdown();
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int done = pairs.size() - failed.get();
+        System.out.printf("Converted %d of %d files in %.2f s "
+                + "(%.1f files/s, %.1f MB/s read), %d failed%n", done,
+                pairs.size(), seconds, done / seconds,
+                bytesRead.get() / 1e6 / seconds, failed.get());
+        return failed.get() == 0 ? 0 : 1;
+    }
+
+    /**
+     * Convert one pair, reporting any failure.
+     *
+     * @param pair the source and destination paths
+     */
+    private void convert(String[] pair) {
+        String error;
+        List<String> same = pair.length == 2
+                ? sources.get(destination(pair)) : null;
+        if (same != null && same.size() > 1) {
+            List<String> others = new ArrayList<>(same);
+            others.remove(pair[0]);
+            error = "same destination as " + String.join(", ", others);
+        } else {
+            error = Convert.convertPair(pair);
+        }
+        if (error == null) {
+            bytesRead.addAndGet(new File(pair[0]).length());
+            return;
+        }
+        failed.incrementAndGet();
+        System.err.print("FAILED " + String.join(" ", pair) + ": " + error
+                + "\n");
+    }
+
+    /**
+     * Get the destination of a pair as a normalized path, so that different
+     * spellings of the same file match.
+     *
+     * @param pair the source and destination paths
+     * @return the absolute destination path
+     */
+    private static Path destination(String[] pair) {
+        return Paths.get(pair[1]).toAbsolutePath().normalize();
+    }
+
+}
@@ -0,0 +1,217 @@
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.FileImageInputStream;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Converts between txt files and images without holding the whole image in
+ * memory. From txt to png, parsing and encoding are overlapped: a parser
+ * thread reads bands of rows into a bounded queue while the calling thread
+ * filters, compresses and writes them. From an image to txt, rows are
+ * decoded a band at a time and written as soon as they are decoded.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+class ConvertPipeline {
+
+    private static final int BAND_PIXELS = 1 << 16;
+    private static final int QUEUE_DEPTH = 4;
+    private static final int IMAGE_BAND_PIXELS = 1 << 24;
+
+    /**
+     * A band of rows handed from the parser to the encoder. A band with no
+     * rows marks the end of the file, or an error if error is not null.
+     */
+    private static final class Band {
+
+        private final int[] rgb;
+        private final int width;
+        private final int rows;
+        private final Exception error;
+
+        /**
+         * Create a band.
+         *
+         * @param rgb the pixels, row by row
+         * @param width the number of pixels in each row
+         * @param rows the number of rows
+         * @param error the error that ended parsing, or null
+         */
+        private Band(int[] rgb, int width, int rows, Exception error) {
+            this.rgb = rgb;
+            this.width = width;
+            this.rows = rows;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Private constructor; this class only has static methods.
+     */
+    private ConvertPipeline() {
+    }
+
+    /**
+     * Converts a txt file to png. If the txt file is invalid, the same
+     * exception as {@link RGBFileFormat#load(String)} is thrown and no png is
+     * left behind.
+     *
+     * @param src the txt file
+     * @param dst the png file
+     * @param level deflate level from 0 to 9
+     * @throws Exception if file not found or incorrect format
+     */
+    static void txtToPng(String src, String dst, int level) throws Exception {
+        // ranks errors as load() does, so no second parse is needed
+        RGBRowReader reader = new RGBRowReader(src, false);
+        BlockingQueue<Band> queue = new ArrayBlockingQueue<>(QUEUE_DEPTH);
+        Thread parser = new Thread(() -> parse(reader, queue),
+                "ConvertPipeline parser");
+        parser.setDaemon(true);
+        parser.start();
+
+        File file = new File(dst);
+        boolean done = false;
+        try (FileChannel channel = new FileOutputStream(file).getChannel();
+                PngWriter png = new PngWriter(channel, level)) {
+            Band band = queue.take();
+            while (band.rows > 0) {
+                png.writeRows(band.rgb, band.width, band.rows);
+                band = queue.take();
+            }
+            if (band.error != null) {
+                throw band.error;
+            }
+            png.finish();
+            done = true;
+        } finally {
+            parser.interrupt();
+            parser.join();
+            if (!done) {
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+    }
+
+    /**
+     * Converts a png/jpg image to txt. The same text as
+     * {@link RGBFileFormat#save(String, Picture)} is written, and no txt is
+     * left behind if the image cannot be read.
+     * <p>
+     * Most PNG files are decoded a row at a time by {@link PngReader}. Other
+     * images are read with ImageIO in bands of up to 16M pixels. ImageIO
+     * decodes from the start of the image for each band, so images larger
+     * than one band take longer this way than a full read would.
+     *
+     * @param src the image file
+     * @param dst the txt file
+     * @throws Exception if file not found or the image cannot be read
+     */
+    static void imageToTxt(String src, String dst) throws Exception {
+        PngReader png = PngReader.open(src);
+        File file = new File(dst);
+        boolean done = false;
+        try (png; RGBRowWriter writer = new RGBRowWriter(dst)) {
+            if (png != null) {
+                int[] row = new int[png.width()];
+                for (int y = 0; y < png.height(); y++) {
+                    png.readRow(row);
+                    writer.writeRow(row);
+                }
+            } else {
+                readBands(src, writer);
+            }
+            done = true;
+        } finally {
+            if (!done) {
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+    }
+
+    /**
+     * Read an image with ImageIO one band of rows at a time and write each
+     * row.
+     *
+     * @param src the image file
+     * @param writer where rows are written
+     * @throws IOException if the image cannot be read
+     */
+    private static void readBands(String src, RGBRowWriter writer)
+            throws IOException {
+        try (ImageInputStream in = new FileImageInputStream(new File(src))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IllegalArgumentException(
+                        "could not read image: " + src);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                int rows = Math.max(1, IMAGE_BAND_PIXELS / width);
+                int[] row = new int[width];
+                for (int y0 = 0; y0 < height; y0 += rows) {
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    param.setSourceRegion(new Rectangle(0, y0, width,
+                            Math.min(rows, height - y0)));
+                    BufferedImage band = reader.read(0, param);
+                    for (int y = 0; y < band.getHeight(); y++) {
+                        band.getRGB(0, y, width, 1, row, 0, width);
+                        writer.writeRow(row);
+                    }
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Read bands of rows into the queue until the end of the file or an
+     * error, then add a band with no rows.
+     *
+     * @param reader the txt file
+     * @param queue where bands are put
+     */
+    private static void parse(RGBRowReader reader, BlockingQueue<Band> queue) {
+        Band end = new Band(null, 0, 0, null);
+        try (reader) {
+            int[] row = reader.readRow();
+            while (row != null) {
+                int width = row.length;
+                int[] rgb = new int[Math.max(1, BAND_PIXELS / width) * width];
+                int rows = 0;
+                while (row != null && (rows + 1) * width <= rgb.length) {
+                    System.arraycopy(row, 0, rgb, rows * width, width);
+                    rows++;
+                    row = reader.readRow();
+                }
+                queue.put(new Band(rgb, width, rows, null));
+            }
+        } catch (InterruptedException e) {
+            return;
+        } catch (Exception e) {
+            end = new Band(null, 0, 0, e);
+        }
+        try {
+            queue.put(end);
+        } catch (InterruptedException e) {
+            return;
+        }
+    }
+
+}
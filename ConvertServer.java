@@ -0,0 +1,234 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Server mode for Convert: stays running and converts files on request, so
+ * that JVM startup and JIT warmup are paid only once. Requests are read one
+ * per line as "SRC DST", either from standard input or from each connection
+ * to a Unix domain socket. Each request gets one line in reply, "OK SRC DST"
+ * or "ERROR SRC DST: message", which may come back in a different order than
+ * the requests were sent.
+ * <p>
+ * Requests are converted on a fixed pool of worker threads. When the workers
+ * are busy and the queue of waiting requests is full, no more requests are
+ * read until one finishes.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+public class ConvertServer {
+
+    private static final String USAGE =
+            "Usage: java Convert -serve [SOCKET] [-threads N] [-queue N]";
+    private static final int WARMUP_SIZE = 256;
+    private static final int WARMUP_ROUNDS = 20;
+
+    private final ExecutorService pool;
+    private final Semaphore slots;
+
+    /**
+     * Create a server.
+     *
+     * @param threads number of worker threads
+     * @param queue number of requests that may wait for a worker
+     */
+    private ConvertServer(int threads, int queue) {
+        pool = Executors.newFixedThreadPool(threads);
+        slots = new Semaphore(threads + queue);
+    }
+
+    /**
+     * Runs the server from the command line. Without a socket, requests are
+     * read from standard input until it is closed.
+     *
+     * @param args command-line arguments, starting with "-serve"
+     * @return exit status
+     * @throws IOException if the socket cannot be opened
+     */
+    static int run(String[] args) throws IOException {
+        String socket = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int queue = threads * 4;
+        try {
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].equals("-threads") && i + 1 < args.length) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-queue") && i + 1 < args.length) {
+                    queue = Integer.parseInt(args[++i]);
+                } else if (socket == null) {
+                    socket = args[i];
+                } else {
+                    threads = 0;
+                }
+            }
+        } catch (NumberFormatException e) {
+            threads = 0;
+        }
+        if (threads < 1 || queue < 0 || queue > Integer.MAX_VALUE - threads) {
+            System.err.print(USAGE + "\n");
+            return 1;
+        }
+
+        warmUp();
+        ConvertServer server = new ConvertServer(threads, queue);
+        try {
+            if (socket == null) {
+                Writer out = new OutputStreamWriter(System.out,
+                        StandardCharsets.UTF_8);
+                server.serve(new BufferedReader(new InputStreamReader(
+                        System.in, StandardCharsets.UTF_8)), out);
+            } else {
+                server.listen(Path.of(socket));
+            }
+        } finally {
+            server.pool.shutdown();
+        }
+        return 0;
+    }
+
+    /**
+     * Convert a small image back and forth so the JIT compiles the hot code
+     * before the first request arrives.
+     *
+     * @throws IOException if the temporary files cannot be written
+     */
+    private static void warmUp() throws IOException {
+        Path dir = Files.createTempDirectory("convert");
+        String png = dir.resolve("warmup.png").toString();
+        String txt = dir.resolve("warmup.txt").toString();
+        Picture picture = new Picture(WARMUP_SIZE, WARMUP_SIZE);
+        int[] data = picture.getRGBData();
+        Random random = new Random(0);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = random.nextInt(1 << 24);
+        }
+        picture.save(png);
+        try {
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                Convert.convert(png, txt);
+                RGBFileFormat.load(txt);
+            }
+        } catch (Exception e) {
+            System.err.print("warmup failed: " + e + "\n");
+        }
+        for (File file : dir.toFile().listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(dir);
+    }
+
+    /**
+     * Accept connections on a Unix domain socket until the server is killed.
+     * Each connection is read on its own thread.
+     *
+     * @param socket path of the socket
+     * @throws IOException if the socket cannot be opened
+     */
+    private void listen(Path socket) throws IOException {
+        Files.deleteIfExists(socket);
+        try (ServerSocketChannel server =
+                ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            socket.toFile().deleteOnExit();
+            while (true) {
+                SocketChannel client = server.accept();
+                Thread thread = new Thread(() -> {
+                    try (client) {
+                        serve(new BufferedReader(Channels.newReader(client,
+                                StandardCharsets.UTF_8)), Channels.newWriter(
+                                client, StandardCharsets.UTF_8));
+                    } catch (IOException e) {
+                        System.err.print("connection failed: " + e + "\n");
+                    }
+                });
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+    }
+
+    /**
+     * Read requests until the end of the input, then wait until every
+     * request has been answered.
+     *
+     * @param in where requests are read
+     * @param out where replies are written
+     * @throws IOException if the input cannot be read
+     */
+    private void serve(BufferedReader in, Writer out) throws IOException {
+        // one permit per answered request; unlike a Phaser, a Semaphore has
+        // no limit on how many requests may be in flight
+        Semaphore answered = new Semaphore(0);
+        int requests = 0;
+        try {
+            for (String line = in.readLine(); line != null;
+                    line = in.readLine()) {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    slots.acquire();
+                    requests++;
+                    String request = line;
+                    pool.execute(() -> {
+                        try {
+                            reply(out, convert(request));
+                        } finally {
+                            slots.release();
+                            answered.release();
+                        }
+                    });
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        answered.acquireUninterruptibly(requests);
+    }
+
+    /**
+     * Convert the files named in one request.
+     *
+     * @param request "SRC DST"
+     * @return the reply
+     */
+    private static String convert(String request) {
+        String error = Convert.convertPair(request.split("\\s+", 2));
+        if (error == null) {
+            return "OK " + request;
+        }
+        return "ERROR " + request + ": " + error;
+    }
+
+    /**
+     * Write one reply line.
+     *
+     * @param out where replies are written
+     * @param reply the reply
+     */
+    private static void reply(Writer out, String reply) {
+        synchronized (out) {
+            try {
+                out.write(reply + "\n");
+                out.flush();
+            } catch (IOException e) {
+                System.err.print("could not reply: " + e + "\n");
+            }
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Iterator;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.FileImageOutputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Writes pixels to a PNG or JPEG file through ImageIO, with control over how
+ * hard the encoder works. Pixels stored as one int each are wrapped in an
+ * image without being copied.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+public class ImageEncoder {
+
+    /**
+     * Leave a setting at the ImageIO writer's default.
+     */
+    public static final int DEFAULT = -1;
+
+    private static final int[] MASKS = {0xFF0000, 0xFF00, 0xFF};
+    private static final int MAX_LEVEL = 9;
+
+    private final int quality;
+    private final int compression;
+
+    /**
+     * Creates an encoder with the ImageIO writer's default settings.
+     */
+    public ImageEncoder() {
+        this(DEFAULT, DEFAULT);
+    }
+
+    /**
+     * Creates an encoder.
+     *
+     * @param quality JPEG quality from 0 (smallest) to 100 (best), or
+     *        DEFAULT
+     * @param compression PNG deflate level from 0 (fastest) to 9
+     *        (smallest), or DEFAULT
+     * @throws IllegalArgumentException if a setting is out of range
+     */
+    public ImageEncoder(int quality, int compression) {
+        if (quality != DEFAULT && (quality < 0 || quality > 100)) {
+            throw new IllegalArgumentException(
+                    "quality must be from 0 to 100: " + quality);
+        }
+        if (compression != DEFAULT
+                && (compression < 0 || compression > MAX_LEVEL)) {
+            throw new IllegalArgumentException(
+                    "compression must be from 0 to 9: " + compression);
+        }
+        this.quality = quality;
+        this.compression = compression;
+    }
+
+    /**
+     * Returns the PNG deflate level, for encoders that do not use ImageIO.
+     *
+     * @return the level from 0 to 9
+     */
+    int compression() {
+        return compression == DEFAULT ? PngWriter.DEFAULT_LEVEL : compression;
+    }
+
+    /**
+     * Writes a picture. The format is chosen by the extension of the path,
+     * which must be .png or .jpg. The picture is not changed; one that is
+     * not stored as one int per pixel, such as a compact picture, is copied
+     * into a temporary image.
+     *
+     * @param path the path to the file
+     * @param picture the picture
+     * @throws IOException if the file cannot be written
+     */
+    public void write(String path, Picture picture) throws IOException {
+        write(path, picture.readRGBData(), picture.width(), picture.height());
+    }
+
+    /**
+     * Writes pixels. The format is chosen by the extension of the path,
+     * which must be .png or .jpg. A partly written file is deleted if the
+     * encoder fails.
+     *
+     * @param path the path to the file
+     * @param rgb the color of each pixel, row by row from the top, encoded
+     *        as by {@link Picture#getRGB(int, int)}
+     * @param width the width of the image
+     * @param height the height of the image
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if the extension is not supported
+     */
+    public void write(String path, int[] rgb, int width, int height)
+            throws IOException {
+        String suffix = path.substring(path.lastIndexOf('.') + 1);
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersBySuffix(
+                suffix);
+        if (!writers.hasNext()) {
+            throw new IllegalArgumentException(
+                    "Unsupported file format: " + path);
+        }
+        ImageWriter writer = writers.next();
+        ImageWriteParam param = param(writer, suffix);
+
+        DataBufferInt buffer = new DataBufferInt(rgb, width * height);
+        WritableRaster raster = Raster.createPackedRaster(buffer, width,
+                height, width, MASKS, new Point());
+        BufferedImage image = new BufferedImage(new DirectColorModel(24,
+                MASKS[0], MASKS[1], MASKS[2]), raster, false, null);
+
+        File file = new File(path);
+        Files.deleteIfExists(file.toPath());
+        boolean done = false;
+        try (ImageOutputStream out = new FileImageOutputStream(file)) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+            done = true;
+        } finally {
+            writer.dispose();
+            if (!done) {
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+    }
+
+    /**
+     * Get the write settings for one format.
+     *
+     * @param writer the writer
+     * @param suffix the file extension
+     * @return the settings
+     */
+    private ImageWriteParam param(ImageWriter writer, String suffix) {
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        boolean jpeg = suffix.equalsIgnoreCase("jpg")
+                || suffix.equalsIgnoreCase("jpeg");
+        int setting = jpeg ? quality : compression;
+        if (setting != DEFAULT && param.canWriteCompressed()) {
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            if (jpeg) {
+                param.setCompressionQuality(setting / 100f);
+            } else {
+                // the PNG writer uses deflate level (int) (9 * (1 - quality))
+                param.setCompressionQuality(
+                        Math.max(0, (MAX_LEVEL - setting - 0.5f) / MAX_LEVEL));
+            }
+        }
+        return param;
+    }
+
+}
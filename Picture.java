@@ -23,6 +23,18 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.image.BufferedImage;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
@@ -72,6 +84,9 @@ import javax.swing.KeyStroke;
  *  <p>
  *  A <em>W</em>-by-<em>H</em> picture uses ~ 4 <em>W H</em> bytes of memory,
  *  since the color of each pixel is encoded as a 32-bit <code>int</code>.
+ *  A compact picture, created by {@link #Picture(int, int, boolean)}, uses
+ *  ~ 3 <em>W H</em> bytes instead, storing each color as three bytes that
+ *  are only converted to an {@code int} when asked for.
  *  <p>
  *  For additional documentation, see
  *  <a href="https://introcs.cs.princeton.edu/31datatype">Section 3.1</a> of
@@ -87,6 +102,7 @@ public final class Picture implements ActionListener {
     private JFrame frame;                      // on-screen view
     private String filename;                   // name of file
     private boolean isOriginUpperLeft = true;  // location of origin
+    private boolean isShared;                  // image is shared with another picture
     private final int width, height;           // width and height
 
    /**
@@ -107,6 +123,64 @@ public final class Picture implements ActionListener {
         // set to TYPE_INT_ARGB here and in next constructor to support transparency
     }
 
+   /**
+     * Creates a {@code width}-by-{@code height} picture, where each pixel is black,
+     * that stores each color in 3 bytes instead of a 4-byte {@code int} if
+     * {@code compact} is true.
+     *
+     * @param width the width of the picture
+     * @param height the height of the picture
+     * @param compact if true, use 3 bytes of memory per pixel
+     * @throws IllegalArgumentException if {@code width} is negative or zero
+     * @throws IllegalArgumentException if {@code height} is negative or zero
+     */
+    public Picture(int width, int height, boolean compact) {
+        if (width  <= 0) throw new IllegalArgumentException("width must be positive");
+        if (height <= 0) throw new IllegalArgumentException("height must be positive");
+        this.width  = width;
+        this.height = height;
+        image = new BufferedImage(width, height, compact ? BufferedImage.TYPE_3BYTE_BGR : BufferedImage.TYPE_INT_RGB);
+    }
+
+    // creates a compact picture around an array of blue, green and red bytes,
+    // one row after another starting with the top row, without copying it
+    Picture(int width, int height, byte[] bgr) {
+        this.width  = width;
+        this.height = height;
+        DataBufferByte buffer = new DataBufferByte(bgr, width * height * 3);
+        WritableRaster raster = Raster.createInterleavedRaster(buffer, width, height,
+                width * 3, 3, new int[] { 2, 1, 0 }, null);
+        ComponentColorModel model = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB),
+                false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+        image = new BufferedImage(model, raster, false, null);
+    }
+
+    // creates a picture around an existing image, without copying it
+    private Picture(int width, int height, BufferedImage image) {
+        this.width  = width;
+        this.height = height;
+        this.image  = image;
+    }
+
+    // returns a picture with the same pixels that shares this picture's image
+    // until it is changed, when it copies the image first; this picture must
+    // not be changed while the image is shared
+    Picture copyOnWrite() {
+        Picture copy = new Picture(width, height, image);
+        copy.filename = filename;
+        copy.isOriginUpperLeft = isOriginUpperLeft;
+        copy.isShared = true;
+        return copy;
+    }
+
+    // copies the image if it is shared, so that it can be changed
+    private void unshare() {
+        if (!isShared) return;
+        ColorModel model = image.getColorModel();
+        image = new BufferedImage(model, image.copyData(null), model.isAlphaPremultiplied(), null);
+        isShared = false;
+    }
+
    /**
      * Creates a new picture that is a deep copy of the argument picture.
      *
@@ -352,10 +426,166 @@ public final class Picture implements ActionListener {
     public void setRGB(int col, int row, int rgb) {
         validateColumnIndex(col);
         validateRowIndex(row);
+        unshare();
         if (isOriginUpperLeft) image.setRGB(col, row, rgb);
         else                   image.setRGB(col, height - row - 1, rgb);
     }
 
+   /**
+     * Copies the colors of row {@code row} into an array, encoded as by
+     * {@link #getRGB(int, int)}. This is much faster than calling
+     * {@code getRGB()} once per pixel.
+     *
+     * @param row the row index
+     * @param rgb the array to fill, of length at least {@code width}
+     * @throws IllegalArgumentException unless {@code 0 <= row < height}
+     * @throws IllegalArgumentException if {@code rgb} is too short
+     */
+    public void getRGBRow(int row, int[] rgb) {
+        validateRowIndex(row);
+        if (rgb == null || rgb.length < width) throw new IllegalArgumentException("array must have length at least " + width);
+        int y = isOriginUpperLeft ? row : height - row - 1;
+        byte[] bgr = bytes();
+        if (bgr != null) {
+            int offset = y * width * 3;
+            for (int col = 0; col < width; col++, offset += 3)
+                rgb[col] = 0xFF000000 | (bgr[offset + 2] & 0xFF) << 16
+                                      | (bgr[offset + 1] & 0xFF) << 8 | bgr[offset] & 0xFF;
+            return;
+        }
+        int[] data = data();
+        if (data == null) {
+            image.getRGB(0, y, width, 1, rgb, 0, width);
+            return;
+        }
+        int offset = y * width;
+        for (int col = 0; col < width; col++)
+            rgb[col] = 0xFF000000 | data[offset + col];
+    }
+
+   /**
+     * Sets the colors of rows {@code row0} through {@code row1 - 1} from an
+     * array that holds one row after another, encoded as by
+     * {@link #setRGB(int, int, int)}.
+     *
+     * @param row0 the index of the first row
+     * @param row1 one more than the index of the last row
+     * @param rgb the colors, of length at least {@code width * (row1 - row0)}
+     * @throws IllegalArgumentException unless {@code 0 <= row0 <= row1 <= height}
+     * @throws IllegalArgumentException if {@code rgb} is too short
+     */
+    public void setRGBRows(int row0, int row1, int[] rgb) {
+        if (row0 < 0 || row1 < row0 || row1 > height)
+            throw new IllegalArgumentException("rows must be between 0 and " + height + ": " + row0 + " to " + row1);
+        if (rgb == null || (long) rgb.length < (long) width * (row1 - row0))
+            throw new IllegalArgumentException("array is too short for " + (row1 - row0) + " rows");
+        unshare();
+        int[] data = data();
+        byte[] bgr = data == null ? bytes() : null;
+        for (int row = row0; row < row1; row++) {
+            int y = isOriginUpperLeft ? row : height - row - 1;
+            int from = (row - row0) * width;
+            if (bgr != null) {
+                int offset = y * width * 3;
+                for (int col = 0; col < width; col++, offset += 3) {
+                    int color = rgb[from + col];
+                    bgr[offset]     = (byte) color;
+                    bgr[offset + 1] = (byte) (color >> 8);
+                    bgr[offset + 2] = (byte) (color >> 16);
+                }
+            }
+            else if (data == null) {
+                image.setRGB(0, y, width, 1, rgb, from, width);
+            }
+            else {
+                int offset = y * width;
+                for (int col = 0; col < width; col++)
+                    data[offset + col] = rgb[from + col] & 0xFFFFFF;
+            }
+        }
+    }
+
+   /**
+     * Returns true if this picture stores each color in 3 bytes, as a picture
+     * created with {@link #Picture(int, int, boolean)} does.
+     *
+     * @return {@code true} if the picture is compact
+     */
+    public boolean isCompact() {
+        return bytes() != null;
+    }
+
+   /**
+     * Returns the array that stores the colors of this picture, one row after
+     * another starting with the top row, with each color encoded in the least
+     * significant 24 bits of an {@code int}. Changes to the array change the
+     * picture. The top row comes first even if the origin is the lower left.
+     * A compact picture is converted to one {@code int} per pixel first, and
+     * is no longer compact.
+     *
+     * @return the array of colors
+     */
+    public int[] getRGBData() {
+        int[] data = data();
+        if (data == null) {
+            BufferedImage copy = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            copy.setRGB(0, 0, width, height, image.getRGB(0, 0, width, height, null, 0, width), 0, width);
+            image = copy;
+            isShared = false;
+            data = data();
+        }
+        else if (isShared) {
+            unshare();
+            data = data();
+        }
+        return data;
+    }
+
+    // returns the colors in the same order as getRGBData() without changing
+    // this picture: the array behind the image if it stores one int per
+    // pixel, and otherwise a copy made a row at a time; the caller must not
+    // change the array
+    int[] readRGBData() {
+        int[] data = data();
+        if (data != null) return data;
+        data = new int[width * height];
+        int[] rgb = new int[width];
+        for (int y = 0; y < height; y++) {
+            getRGBRow(isOriginUpperLeft ? y : height - y - 1, rgb);
+            System.arraycopy(rgb, 0, data, y * width, width);
+        }
+        return data;
+    }
+
+    // returns the array behind the image if it stores one int per pixel with
+    // no padding, and null otherwise
+    private int[] data() {
+        if (image.getType() != BufferedImage.TYPE_INT_RGB) return null;
+        SampleModel model = image.getRaster().getSampleModel();
+        if (!(model instanceof SinglePixelPackedSampleModel)) return null;
+        if (((SinglePixelPackedSampleModel) model).getScanlineStride() != width) return null;
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        if (buffer.getOffset() != 0 || image.getRaster().getSampleModelTranslateX() != 0
+                                    || image.getRaster().getSampleModelTranslateY() != 0) return null;
+        return ((DataBufferInt) buffer).getData();
+    }
+
+    // returns the array behind the image if it stores blue, green and red
+    // bytes for each pixel with no padding, and null otherwise
+    private byte[] bytes() {
+        if (image.getType() != BufferedImage.TYPE_3BYTE_BGR) return null;
+        SampleModel model = image.getRaster().getSampleModel();
+        if (!(model instanceof PixelInterleavedSampleModel)) return null;
+        PixelInterleavedSampleModel interleaved = (PixelInterleavedSampleModel) model;
+        int[] offsets = interleaved.getBandOffsets();
+        if (interleaved.getPixelStride() != 3 || interleaved.getScanlineStride() != width * 3
+                || offsets[0] != 2 || offsets[1] != 1 || offsets[2] != 0) return null;
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        if (buffer.getOffset() != 0 || image.getRaster().getSampleModelTranslateX() != 0
+                                    || image.getRaster().getSampleModelTranslateY() != 0) return null;
+        return ((DataBufferByte) buffer).getData();
+    }
+
    /**
      * Returns true if this picture is equal to the argument picture.
      *
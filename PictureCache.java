@@ -0,0 +1,271 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of loaded pictures, bounded by the memory their pixels use and
+ * evicting the least recently used first. A file is cached under its
+ * canonical path, size and last-modified time, so a changed file is loaded
+ * again. RGB text is kept as compact pictures, at 3 bytes per pixel.
+ * <p>
+ * When several threads ask for the same file at once, it is loaded only
+ * once and they all wait for that load. Each caller gets its own
+ * copy-on-write picture: it shares the cached pixels until it is changed, and
+ * then copies them, so callers can never change what is in the cache.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+public class PictureCache {
+
+    private final long maxBytes;
+    private final Map<String, Picture> pictures =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private final ConcurrentHashMap<String, CompletableFuture<Picture>>
+            loading = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private long bytes;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxBytes the most memory the cached pixels may use
+     * @throws IllegalArgumentException if maxBytes is negative
+     */
+    public PictureCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Loads a picture through the cache. Files ending in .png or .jpg are
+     * read as images, files ending in .rgbb as RGB binary, and others as RGB
+     * text, which may be gzip compressed.
+     *
+     * @param path the path to the file
+     * @return a copy-on-write view of the picture
+     * @throws FileNotFoundException if path is not found
+     * @throws RGBException if file format is incorrect
+     * @throws IllegalArgumentException if an image cannot be read
+     */
+    public Picture get(String path)
+            throws FileNotFoundException, RGBException {
+        String key = key(path);
+        Picture picture = cached(key);
+        if (picture != null) {
+            return picture.copyOnWrite();
+        }
+        CompletableFuture<Picture> mine = new CompletableFuture<>();
+        CompletableFuture<Picture> other = loading.putIfAbsent(key, mine);
+        if (other != null) {
+            hits.incrementAndGet();
+            return await(other).copyOnWrite();
+        }
+        try {
+            // a load that just finished may have cached it
+            picture = cached(key);
+            if (picture == null) {
+                misses.incrementAndGet();
+                picture = load(path);
+                put(key, picture);
+            }
+            mine.complete(picture);
+            return picture.copyOnWrite();
+        } catch (Throwable e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, mine);
+        }
+    }
+
+    /**
+     * Returns the number of requests answered from the cache, including
+     * those that waited for another thread to load the same file.
+     *
+     * @return the number of hits
+     */
+    public long hits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of requests that loaded a file.
+     *
+     * @return the number of misses
+     */
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of pictures removed to stay within the bound.
+     *
+     * @return the number of evictions
+     */
+    public long evictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Returns the memory used by the cached pixels.
+     *
+     * @return the size in bytes
+     */
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the number of cached pictures.
+     *
+     * @return the number of pictures
+     */
+    public synchronized int size() {
+        return pictures.size();
+    }
+
+    /**
+     * Removes every picture from the cache. Pictures already handed out are
+     * not affected.
+     */
+    public synchronized void clear() {
+        pictures.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Get the key of a file: its canonical path, size and last-modified
+     * time.
+     *
+     * @param path the path to the file
+     * @return the key
+     */
+    private static String key(String path) {
+        File file = new File(path);
+        try {
+            return file.getCanonicalPath() + "|" + file.length() + "|"
+                    + file.lastModified();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Look up a picture, counting a hit if it is found.
+     *
+     * @param key the key of the file
+     * @return the cached picture, or null if there is none
+     */
+    private synchronized Picture cached(String key) {
+        Picture picture = pictures.get(key);
+        if (picture != null) {
+            hits.incrementAndGet();
+        }
+        return picture;
+    }
+
+    /**
+     * Load a file, choosing the format by its extension.
+     *
+     * @param path the path to the file
+     * @return the picture
+     * @throws FileNotFoundException if path is not found
+     * @throws RGBException if file format is incorrect
+     */
+    private static Picture load(String path)
+            throws FileNotFoundException, RGBException {
+        if (path.endsWith(".png") || path.endsWith(".jpg")) {
+            if (!new File(path).isFile()) {
+                throw new FileNotFoundException(path);
+            }
+            return new Picture(path);
+        }
+        if (path.endsWith(".rgbb")) {
+            return RGBBFileFormat.load(path);
+        }
+        return RGBFileFormat.loadCompact(path);
+    }
+
+    /**
+     * Add a picture, then evict the least recently used pictures until the
+     * cache is within its bound. A picture larger than the bound is not
+     * kept.
+     *
+     * @param key the key of the file
+     * @param picture the picture
+     */
+    private synchronized void put(String key, Picture picture) {
+        long size = sizeOf(picture);
+        if (size > maxBytes) {
+            return;
+        }
+        Picture old = pictures.put(key, picture);
+        if (old != null) {
+            bytes -= sizeOf(old);
+        }
+        bytes += size;
+        Iterator<Picture> eldest = pictures.values().iterator();
+        while (bytes > maxBytes) {
+            bytes -= sizeOf(eldest.next());
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Get the memory used by the pixels of a picture.
+     *
+     * @param picture the picture
+     * @return the size in bytes
+     */
+    private static long sizeOf(Picture picture) {
+        return (long) picture.width() * picture.height()
+                * (picture.isCompact() ? 3 : 4);
+    }
+
+    /**
+     * Wait for another thread to load a picture.
+     *
+     * @param future the load
+     * @return the picture
+     * @throws FileNotFoundException if path is not found
+     * @throws RGBException if file format is incorrect
+     */
+    private static Picture await(CompletableFuture<Picture> future)
+            throws FileNotFoundException, RGBException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof FileNotFoundException) {
+                throw (FileNotFoundException) cause;
+            }
+            if (cause instanceof RGBException) {
+                throw (RGBException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+}
@@ -0,0 +1,353 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+
+/**
+ * The pixels of a picture kept outside the Java heap, for images too large
+ * for a {@link Picture} or too many to keep on the heap at once. Pixels are
+ * indexed by long, so a buffer may hold more than Integer.MAX_VALUE of them;
+ * they are stored in direct buffers of at most 1 GB each, one int per pixel
+ * with the same encoding as {@link Picture#getRGB(int, int)} without the
+ * alpha bits.
+ * <p>
+ * {@link #close()} drops the buffer's references to its memory, and the
+ * garbage collector frees the memory once no thread is still using it, so
+ * closing a buffer that another thread is reading is safe. A buffer must not
+ * be used after it is closed. Direct memory is limited by the JVM option
+ * -XX:MaxDirectMemorySize, which defaults to the maximum heap size.
+ * <p>
+ * The pixels are only copied into a BufferedImage when one is needed, by
+ * {@link #toPicture()} or {@link #show()}. PNG files are written a band of
+ * rows at a time without one.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+public class PixelBuffer implements Closeable {
+
+    private static final int CHUNK_SHIFT = 28;
+    private static final long CHUNK_PIXELS = 1L << CHUNK_SHIFT;
+    private static final long CHUNK_MASK = CHUNK_PIXELS - 1;
+    private static final int BAND_PIXELS = 1 << 16;
+
+    private final int width;
+    private final int height;
+    private IntBuffer[] ints;
+
+    /**
+     * Creates a buffer of black pixels.
+     *
+     * @param width the width of the picture
+     * @param height the height of the picture
+     * @throws IllegalArgumentException if width or height is not positive
+     * @throws OutOfMemoryError if there is not enough direct memory
+     */
+    public PixelBuffer(int width, int height) {
+        if (width <= 0) {
+            throw new IllegalArgumentException("width must be positive");
+        }
+        if (height <= 0) {
+            throw new IllegalArgumentException("height must be positive");
+        }
+        this.width = width;
+        this.height = height;
+        long size = (long) width * height;
+        int count = (int) ((size + CHUNK_PIXELS - 1) >>> CHUNK_SHIFT);
+        ints = new IntBuffer[count];
+        try {
+            for (int i = 0; i < count; i++) {
+                long pixels = Math.min(CHUNK_PIXELS, size - i * CHUNK_PIXELS);
+                ints[i] = ByteBuffer.allocateDirect((int) pixels
+                        * Integer.BYTES).order(ByteOrder.nativeOrder())
+                        .asIntBuffer();
+            }
+        } catch (OutOfMemoryError e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a buffer holding a copy of the pixels of a picture.
+     *
+     * @param picture the picture to copy
+     */
+    public PixelBuffer(Picture picture) {
+        this(picture.width(), picture.height());
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            picture.getRGBRow(y, row);
+            for (int x = 0; x < width; x++) {
+                row[x] &= 0xFFFFFF;
+            }
+            setRGBRow(y, row);
+        }
+    }
+
+    /**
+     * Returns the width of the picture.
+     *
+     * @return the width in pixels
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the picture.
+     *
+     * @return the height in pixels
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Returns the number of pixels.
+     *
+     * @return width times height
+     */
+    public long size() {
+        return (long) width * height;
+    }
+
+    /**
+     * Returns the color of a pixel.
+     *
+     * @param index the index of the pixel, y * width + x
+     * @return the color encoded as an rgb int
+     * @throws IndexOutOfBoundsException if index is not in the buffer
+     * @throws IllegalStateException if the buffer is closed
+     */
+    public int getRGB(long index) {
+        checkIndex(index);
+        return ints()[(int) (index >>> CHUNK_SHIFT)]
+                .get((int) (index & CHUNK_MASK));
+    }
+
+    /**
+     * Sets the color of a pixel.
+     *
+     * @param index the index of the pixel, y * width + x
+     * @param rgb the color encoded as an rgb int; the top 8 bits are ignored
+     * @throws IndexOutOfBoundsException if index is not in the buffer
+     * @throws IllegalStateException if the buffer is closed
+     */
+    public void setRGB(long index, int rgb) {
+        checkIndex(index);
+        ints()[(int) (index >>> CHUNK_SHIFT)]
+                .put((int) (index & CHUNK_MASK), rgb & 0xFFFFFF);
+    }
+
+    /**
+     * Returns the color of a pixel.
+     *
+     * @param col the column index
+     * @param row the row index
+     * @return the color encoded as an rgb int
+     * @throws IndexOutOfBoundsException if the pixel is not in the picture
+     * @throws IllegalStateException if the buffer is closed
+     */
+    public int getRGB(int col, int row) {
+        checkPixel(col, row);
+        return getRGB((long) row * width + col);
+    }
+
+    /**
+     * Sets the color of a pixel.
+     *
+     * @param col the column index
+     * @param row the row index
+     * @param rgb the color encoded as an rgb int; the top 8 bits are ignored
+     * @throws IndexOutOfBoundsException if the pixel is not in the picture
+     * @throws IllegalStateException if the buffer is closed
+     */
+    public void setRGB(int col, int row, int rgb) {
+        checkPixel(col, row);
+        setRGB((long) row * width + col, rgb);
+    }
+
+    /**
+     * Copies the colors of one row into an array.
+     *
+     * @param row the row index
+     * @param rgb receives the colors, and must have room for width pixels
+     * @throws IndexOutOfBoundsException if the row is not in the picture
+     * @throws IllegalStateException if the buffer is closed
+     */
+    public void getRGBRow(int row, int[] rgb) {
+        copy(row, rgb, false);
+    }
+
+    /**
+     * Sets the colors of one row from an array. The top 8 bits of each color
+     * must be zero.
+     *
+     * @param row the row index
+     * @param rgb the colors of the width pixels of the row
+     * @throws IndexOutOfBoundsException if the row is not in the picture
+     * @throws IllegalStateException if the buffer is closed
+     */
+    public void setRGBRow(int row, int[] rgb) {
+        copy(row, rgb, true);
+    }
+
+    /**
+     * Copies the pixels into a new picture on the heap.
+     *
+     * @return the picture
+     * @throws IllegalArgumentException if the picture would be too large
+     * @throws IllegalStateException if the buffer is closed
+     */
+    public Picture toPicture() {
+        if (size() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("picture is too large");
+        }
+        IntBuffer[] buffers = ints();
+        Picture picture = new Picture(width, height);
+        int[] data = picture.getRGBData();
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i].get(0, data, (int) (i * CHUNK_PIXELS),
+                    buffers[i].capacity());
+        }
+        return picture;
+    }
+
+    /**
+     * Displays the picture in a window, by copying it into a new picture.
+     *
+     * @throws IllegalArgumentException if the picture would be too large
+     * @throws IllegalStateException if the buffer is closed
+     */
+    public void show() {
+        toPicture().show();
+    }
+
+    /**
+     * Saves the picture to a PNG or JPEG file. A PNG file is written a band
+     * of rows at a time; other formats are written through a copy of the
+     * picture on the heap.
+     *
+     * @param path the path to the file
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if the extension is not supported, or
+     *         a JPEG file would be too large
+     * @throws IllegalStateException if the buffer is closed
+     */
+    public void save(String path) throws IOException {
+        if (!path.toLowerCase().endsWith(".png")) {
+            new ImageEncoder().write(path, toPicture());
+            return;
+        }
+        // fail before the file is created if the buffer is closed
+        ints();
+        File file = new File(path);
+        boolean done = false;
+        try (FileChannel channel = new FileOutputStream(file).getChannel();
+                PngWriter png = new PngWriter(channel,
+                        PngWriter.DEFAULT_LEVEL)) {
+            int rows = Math.max(1, BAND_PIXELS / width);
+            int[] band = new int[rows * width];
+            int[] row = new int[width];
+            for (int y = 0; y < height; y += rows) {
+                int n = Math.min(rows, height - y);
+                for (int i = 0; i < n; i++) {
+                    getRGBRow(y + i, row);
+                    System.arraycopy(row, 0, band, i * width, width);
+                }
+                png.writeRows(band, width, n);
+            }
+            png.finish();
+            done = true;
+        } finally {
+            if (!done) {
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+    }
+
+    /**
+     * Releases the memory of the buffer, which the garbage collector frees
+     * once no thread is still reading or writing it. Closing a closed buffer
+     * has no effect.
+     */
+    @Override
+    public void close() {
+        ints = null;
+    }
+
+    /**
+     * Copy one row between the buffer and an array.
+     *
+     * @param row the row index
+     * @param rgb the array
+     * @param store if true, copy from the array into the buffer
+     */
+    private void copy(int row, int[] rgb, boolean store) {
+        if (row < 0 || row >= height) {
+            throw new IndexOutOfBoundsException("row " + row);
+        }
+        IntBuffer[] buffers = ints();
+        long index = (long) row * width;
+        int done = 0;
+        while (done < width) {
+            IntBuffer chunk = buffers[(int) (index >>> CHUNK_SHIFT)];
+            int at = (int) (index & CHUNK_MASK);
+            int n = Math.min(width - done, chunk.capacity() - at);
+            if (store) {
+                chunk.put(at, rgb, done, n);
+            } else {
+                chunk.get(at, rgb, done, n);
+            }
+            done += n;
+            index += n;
+        }
+    }
+
+    /**
+     * Get the chunks of the buffer as ints.
+     *
+     * @return the chunks
+     * @throws IllegalStateException if the buffer is closed
+     */
+    private IntBuffer[] ints() {
+        IntBuffer[] buffers = ints;
+        if (buffers == null) {
+            throw new IllegalStateException("buffer is closed");
+        }
+        return buffers;
+    }
+
+    /**
+     * Check that a pixel index is in the buffer.
+     *
+     * @param index the index
+     * @throws IndexOutOfBoundsException if it is not
+     */
+    private void checkIndex(long index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("pixel " + index);
+        }
+    }
+
+    /**
+     * Check that a pixel is in the picture.
+     *
+     * @param col the column index
+     * @param row the row index
+     * @throws IndexOutOfBoundsException if it is not
+     */
+    private void checkPixel(int col, int row) {
+        if (col < 0 || col >= width || row < 0 || row >= height) {
+            throw new IndexOutOfBoundsException(
+                    "pixel (" + col + ", " + row + ")");
+        }
+    }
+
+}
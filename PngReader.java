@@ -0,0 +1,316 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Decodes a PNG file one row at a time, so the image does not have to be in
+ * memory at once. Only the kinds of PNG whose colors ImageIO reads without
+ * conversion are handled: 8-bit RGB, 8-bit RGBA and indexed color, not
+ * interlaced and without an ICC profile. {@link #open(String)} returns null
+ * for any other file, which should be read with ImageIO instead.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+class PngReader implements Closeable {
+
+    private static final long SIGNATURE = 0x89504E470D0A1A0AL;
+    private static final int RGB = 2;
+    private static final int INDEXED = 3;
+    private static final int RGBA = 6;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final DataInputStream in;
+    private int width;
+    private int height;
+    private int depth;
+    private int colorType;
+    private int[] palette = new int[0];
+    private int bpp;
+    private byte[] prev;
+    private byte[] cur;
+    private InputStream pixels;
+    private int chunkLeft;
+    private boolean lastChunk;
+
+    /**
+     * Create a reader.
+     *
+     * @param in the file
+     */
+    private PngReader(DataInputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Opens a PNG file and reads its header.
+     *
+     * @param path the path to the file
+     * @return the reader, or null if the file is not a PNG this class can
+     *         decode
+     * @throws FileNotFoundException if path is not found
+     * @throws IOException if the file cannot be read
+     */
+    static PngReader open(String path) throws IOException {
+        PngReader reader = new PngReader(new DataInputStream(
+                new BufferedInputStream(new FileInputStream(path),
+                        BUFFER_SIZE)));
+        boolean ok = false;
+        try {
+            ok = reader.header();
+        } catch (EOFException e) {
+            ok = false;
+        } finally {
+            if (!ok) {
+                reader.close();
+            }
+        }
+        return ok ? reader : null;
+    }
+
+    /**
+     * Returns the width of the image.
+     *
+     * @return the width
+     */
+    int width() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the image.
+     *
+     * @return the height
+     */
+    int height() {
+        return height;
+    }
+
+    /**
+     * Read the chunks before the pixel data.
+     *
+     * @return true if the image can be decoded
+     * @throws IOException if the file cannot be read
+     */
+    private boolean header() throws IOException {
+        if (in.readLong() != SIGNATURE) {
+            return false;
+        }
+        while (true) {
+            int length = in.readInt();
+            int type = in.readInt();
+            if (type == chunk("IHDR")) {
+                width = in.readInt();
+                height = in.readInt();
+                depth = in.readUnsignedByte();
+                colorType = in.readUnsignedByte();
+                int compression = in.readUnsignedByte();
+                int filter = in.readUnsignedByte();
+                int interlace = in.readUnsignedByte();
+                boolean indexed = colorType == INDEXED && (depth == 1
+                        || depth == 2 || depth == 4 || depth == 8);
+                boolean direct = (colorType == RGB || colorType == RGBA)
+                        && depth == 8;
+                if (!indexed && !direct || compression != 0 || filter != 0
+                        || interlace != 0 || width <= 0 || height <= 0) {
+                    return false;
+                }
+                skip(length - 13 + 4);
+            } else if (type == chunk("PLTE")) {
+                palette = new int[length / 3];
+                for (int i = 0; i < palette.length; i++) {
+                    palette[i] = in.readUnsignedByte() << 16
+                            | in.readUnsignedByte() << 8
+                            | in.readUnsignedByte();
+                }
+                skip(length - palette.length * 3 + 4);
+            } else if (type == chunk("iCCP")) {
+                return false;
+            } else if (type == chunk("IDAT")) {
+                chunkLeft = length;
+                break;
+            } else if (type == chunk("IEND")) {
+                return false;
+            } else {
+                skip(length + 4);
+            }
+        }
+        if (width == 0 || colorType == INDEXED && palette.length == 0) {
+            return false;
+        }
+
+        int channels = colorType == RGB ? 3 : colorType == RGBA ? 4 : 1;
+        bpp = channels * depth / 8 + (depth < 8 ? 1 : 0);
+        int rowBytes = (int) (((long) width * channels * depth + 7) / 8);
+        prev = new byte[rowBytes];
+        cur = new byte[rowBytes];
+        palette = Arrays.copyOf(palette, 1 << depth);
+        pixels = new InflaterInputStream(new IdatStream(), new Inflater(),
+                BUFFER_SIZE);
+        return true;
+    }
+
+    /**
+     * Reads the next row of pixels.
+     *
+     * @param rgb where the row is put, encoded as by
+     *        {@link Picture#getRGB(int, int)} without the alpha bits
+     * @throws IOException if the file cannot be read or is truncated
+     */
+    void readRow(int[] rgb) throws IOException {
+        int filter = pixels.read();
+        if (filter < 0) {
+            throw new EOFException("truncated PNG");
+        }
+        for (int n = 0; n < cur.length;) {
+            int count = pixels.read(cur, n, cur.length - n);
+            if (count < 0) {
+                throw new EOFException("truncated PNG");
+            }
+            n += count;
+        }
+        unfilter(filter);
+
+        if (colorType == INDEXED) {
+            int mask = (1 << depth) - 1;
+            int perByte = 8 / depth;
+            for (int x = 0; x < width; x++) {
+                int shift = 8 - depth * (x % perByte + 1);
+                rgb[x] = palette[(cur[x / perByte] >> shift) & mask];
+            }
+        } else {
+            for (int x = 0, i = 0; x < width; x++, i += bpp) {
+                rgb[x] = (cur[i] & 0xFF) << 16 | (cur[i + 1] & 0xFF) << 8
+                        | cur[i + 2] & 0xFF;
+            }
+        }
+        byte[] swap = prev;
+        prev = cur;
+        cur = swap;
+    }
+
+    /**
+     * Undo the PNG filter of the current row.
+     *
+     * @param filter the filter type
+     * @throws IOException if the filter type is invalid
+     */
+    private void unfilter(int filter) throws IOException {
+        int n = cur.length;
+        switch (filter) {
+            case 0:
+                break;
+            case 1:
+                for (int i = bpp; i < n; i++) {
+                    cur[i] += cur[i - bpp];
+                }
+                break;
+            case 2:
+                for (int i = 0; i < n; i++) {
+                    cur[i] += prev[i];
+                }
+                break;
+            case 3:
+                for (int i = 0; i < n; i++) {
+                    int a = i < bpp ? 0 : cur[i - bpp] & 0xFF;
+                    cur[i] += (byte) ((a + (prev[i] & 0xFF)) >> 1);
+                }
+                break;
+            case 4:
+                for (int i = 0; i < n; i++) {
+                    int a = i < bpp ? 0 : cur[i - bpp] & 0xFF;
+                    int b = prev[i] & 0xFF;
+                    int c = i < bpp ? 0 : prev[i - bpp] & 0xFF;
+                    int p = a + b - c;
+                    int pa = Math.abs(p - a);
+                    int pb = Math.abs(p - b);
+                    int pc = Math.abs(p - c);
+                    cur[i] += (byte) (pa <= pb && pa <= pc ? a
+                            : pb <= pc ? b : c);
+                }
+                break;
+            default:
+                throw new IOException("invalid PNG filter: " + filter);
+        }
+    }
+
+    /**
+     * Get the code of a chunk type.
+     *
+     * @param type the chunk type
+     * @return the four characters as an int
+     */
+    private static int chunk(String type) {
+        return type.charAt(0) << 24 | type.charAt(1) << 16
+                | type.charAt(2) << 8 | type.charAt(3);
+    }
+
+    /**
+     * Skip bytes of the file.
+     *
+     * @param n the number of bytes
+     * @throws IOException if the file cannot be read or is truncated
+     */
+    private void skip(int n) throws IOException {
+        if (n < 0) {
+            throw new IOException("invalid PNG chunk");
+        }
+        in.skipNBytes(n);
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * The data of consecutive IDAT chunks as one stream, starting with the
+     * chunk whose header {@link #header()} stopped at.
+     */
+    private final class IdatStream extends InputStream {
+
+        private final byte[] one = new byte[1];
+
+        @Override
+        public int read() throws IOException {
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            while (chunkLeft == 0) {
+                if (lastChunk) {
+                    return -1;
+                }
+                // skip the CRC and read the next chunk's header
+                in.skipNBytes(4);
+                chunkLeft = in.readInt();
+                lastChunk = in.readInt() != chunk("IDAT");
+                if (lastChunk || chunkLeft < 0) {
+                    chunkLeft = 0;
+                    lastChunk = true;
+                }
+            }
+            int count = in.read(b, off, Math.min(len, chunkLeft));
+            if (count < 0) {
+                throw new EOFException("truncated PNG");
+            }
+            chunkLeft -= count;
+            return count;
+        }
+    }
+
+}
@@ -0,0 +1,256 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Encodes a PNG file one band of rows at a time, so the image does not have
+ * to be in memory at once and its height need not be known in advance. Rows
+ * are filtered the way ImageIO's writer does it, trying each PNG filter and
+ * keeping the one with the smallest sum of absolute differences. The height
+ * in the header is filled in by {@link #finish()}. The writer must be closed,
+ * whether or not the file was finished, to free the memory of the deflater.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+class PngWriter implements Closeable {
+
+    /**
+     * The deflate level used by ImageIO's PNG writer.
+     */
+    static final int DEFAULT_LEVEL = 4;
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G',
+        '\r', '\n', 0x1A, '\n'};
+    private static final int IHDR_SIZE = 13;
+    private static final int IHDR_OFFSET = SIGNATURE.length + 8;
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int BPP = 3;
+    private static final int FILTERS = 5;
+
+    private final FileChannel channel;
+    private final Deflater deflater;
+    private final byte[] idat = new byte[CHUNK_SIZE];
+    private int idatLength;
+    private int width = -1;
+    private int height;
+    private byte[] prev;
+    private byte[] cur;
+    private byte[][] filtered;
+
+    /**
+     * Writes a PNG file to a channel, which must be positioned at the start
+     * of the file.
+     *
+     * @param channel the output
+     * @param level deflate level from 0 to 9
+     */
+    PngWriter(FileChannel channel, int level) {
+        this.channel = channel;
+        this.deflater = new Deflater(level);
+    }
+
+    /**
+     * Writes rows of pixels. Every row must have the same width.
+     *
+     * @param rgb the color of each pixel, row by row, encoded as by
+     *        {@link Picture#getRGB(int, int)}
+     * @param width the number of pixels in each row
+     * @param rows the number of rows
+     * @throws IOException if the file cannot be written
+     */
+    void writeRows(int[] rgb, int width, int rows) throws IOException {
+        if (this.width < 0) {
+            header(width);
+        }
+        for (int r = 0; r < rows; r++) {
+            for (int x = 0, i = r * width, b = 0; x < width; x++, i++) {
+                int pixel = rgb[i];
+                cur[b++] = (byte) (pixel >> 16);
+                cur[b++] = (byte) (pixel >> 8);
+                cur[b++] = (byte) pixel;
+            }
+            deflater.setInput(filter());
+            while (!deflater.needsInput()) {
+                drain();
+            }
+            byte[] swap = prev;
+            prev = cur;
+            cur = swap;
+        }
+        height += rows;
+    }
+
+    /**
+     * Writes the rest of the file and fills in the height. Does not close
+     * the channel or the writer.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    void finish() throws IOException {
+        deflater.finish();
+        while (!deflater.finished()) {
+            drain();
+        }
+        if (idatLength > 0) {
+            chunk("IDAT", idat, idatLength);
+        }
+        chunk("IEND", idat, 0);
+
+        byte[] ihdr = ihdr(width, height);
+        ByteBuffer patch = ByteBuffer.allocate(IHDR_SIZE + 4);
+        patch.put(ihdr).putInt((int) crc(ihdr)).flip();
+        while (patch.hasRemaining()) {
+            channel.write(patch, IHDR_OFFSET + patch.position());
+        }
+    }
+
+    /**
+     * Frees the memory of the deflater. Does not close the channel. Closing a
+     * closed writer has no effect.
+     */
+    @Override
+    public void close() {
+        deflater.end();
+    }
+
+    /**
+     * Write the signature and header, with a height of 0 for now.
+     *
+     * @param width the width of the image
+     * @throws IOException if the file cannot be written
+     */
+    private void header(int width) throws IOException {
+        this.width = width;
+        prev = new byte[width * BPP];
+        cur = new byte[width * BPP];
+        filtered = new byte[FILTERS][1 + width * BPP];
+        for (int f = 0; f < FILTERS; f++) {
+            filtered[f][0] = (byte) f;
+        }
+        write(ByteBuffer.wrap(SIGNATURE));
+        byte[] ihdr = ihdr(width, 0);
+        chunk("IHDR", ihdr, ihdr.length);
+    }
+
+    /**
+     * Get the contents of the IHDR chunk: 8-bit RGB, not interlaced.
+     *
+     * @param width the width of the image
+     * @param height the height of the image
+     * @return the chunk data
+     */
+    private static byte[] ihdr(int width, int height) {
+        return ByteBuffer.allocate(IHDR_SIZE).putInt(width).putInt(height)
+                .put((byte) 8).put((byte) 2).array();
+    }
+
+    /**
+     * Filter the current row with each PNG filter.
+     *
+     * @return the filtered row with the smallest sum of absolute values
+     */
+    private byte[] filter() {
+        int n = cur.length;
+        long[] sums = new long[FILTERS];
+        for (int i = 0; i < n; i++) {
+            int c = cur[i] & 0xFF;
+            int a = i < BPP ? 0 : cur[i - BPP] & 0xFF;
+            int b = prev[i] & 0xFF;
+            int d = i < BPP ? 0 : prev[i - BPP] & 0xFF;
+            int p = a + b - d;
+            int pa = Math.abs(p - a);
+            int pb = Math.abs(p - b);
+            int pc = Math.abs(p - d);
+            int paeth = pa <= pb && pa <= pc ? a : pb <= pc ? b : d;
+
+            byte none = (byte) c;
+            byte sub = (byte) (c - a);
+            byte up = (byte) (c - b);
+            byte average = (byte) (c - ((a + b) >> 1));
+            byte predicted = (byte) (c - paeth);
+            filtered[0][i + 1] = none;
+            filtered[1][i + 1] = sub;
+            filtered[2][i + 1] = up;
+            filtered[3][i + 1] = average;
+            filtered[4][i + 1] = predicted;
+            sums[0] += Math.abs(none);
+            sums[1] += Math.abs(sub);
+            sums[2] += Math.abs(up);
+            sums[3] += Math.abs(average);
+            sums[4] += Math.abs(predicted);
+        }
+        int best = 0;
+        for (int f = 1; f < FILTERS; f++) {
+            if (sums[f] < sums[best]) {
+                best = f;
+            }
+        }
+        return filtered[best];
+    }
+
+    /**
+     * Move compressed output into the IDAT buffer, writing a chunk whenever
+     * the buffer fills.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    private void drain() throws IOException {
+        idatLength += deflater.deflate(idat, idatLength,
+                idat.length - idatLength);
+        if (idatLength == idat.length) {
+            chunk("IDAT", idat, idatLength);
+            idatLength = 0;
+        }
+    }
+
+    /**
+     * Write one chunk.
+     *
+     * @param type the chunk type
+     * @param data the chunk data
+     * @param length the number of bytes of data
+     * @throws IOException if the file cannot be written
+     */
+    private void chunk(String type, byte[] data, int length)
+            throws IOException {
+        byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(name);
+        crc.update(data, 0, length);
+        ByteBuffer buf = ByteBuffer.allocate(length + 12);
+        buf.putInt(length).put(name).put(data, 0, length);
+        buf.putInt((int) crc.getValue()).flip();
+        write(buf);
+    }
+
+    /**
+     * Get the CRC of the IHDR chunk.
+     *
+     * @param ihdr the chunk data
+     * @return the CRC
+     */
+    private static long crc(byte[] ihdr) {
+        CRC32 crc = new CRC32();
+        crc.update("IHDR".getBytes(StandardCharsets.US_ASCII));
+        crc.update(ihdr);
+        return crc.getValue();
+    }
+
+    /**
+     * Write all of a buffer at the channel's position.
+     *
+     * @param buf the bytes to write
+     * @throws IOException if the file cannot be written
+     */
+    private void write(ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+    }
+
+}
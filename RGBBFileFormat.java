@@ -0,0 +1,240 @@
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Utility class for reading/writing files in RGBB format, a binary version of
+ * the RGB format. A file has a 20-byte header followed by the pixels, one row
+ * after another. All numbers are little-endian.
+ * <pre>
+ *  0  magic "RGBB"
+ *  4  version (1)
+ *  5  layout: PACKED (3 bytes per pixel, r g b) or INT (4 bytes, 0x00rrggbb)
+ *  6  flags: 1 if the checksum is present
+ *  7  reserved (0)
+ *  8  width
+ * 12  height
+ * 16  CRC32 of the pixel bytes, or 0
+ * </pre>
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+public class RGBBFileFormat {
+
+    /** Layout with 3 bytes per pixel. */
+    public static final int PACKED = 0;
+
+    /** Layout with one 4-byte int per pixel, the fastest to load. */
+    public static final int INT = 1;
+
+    private static final byte[] MAGIC = {'R', 'G', 'B', 'B'};
+    private static final byte VERSION = 1;
+    private static final byte CHECKSUM = 1;
+    private static final int HEADER_SIZE = 20;
+    private static final int CHECKSUM_OFFSET = 16;
+    private static final long WINDOW_SIZE = 1L << 28;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Loads a picture from an RGBB file. The pixels are copied from the
+     * mapped file straight into the picture's data array.
+     *
+     * @param path the path to the file
+     * @return the corresponding picture
+     * @throws FileNotFoundException if path is not found
+     * @throws RGBException if file format is incorrect
+     */
+    public static Picture load(String path)
+            throws FileNotFoundException, RGBException {
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try (FileChannel channel = file.getChannel()) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new RGBException("header", 0, 0);
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                channel.read(header);
+            }
+            header.flip();
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            int version = header.get();
+            int layout = header.get();
+            int flags = header.get();
+            header.get();
+            int width = header.getInt();
+            int height = header.getInt();
+            long checksum = header.getInt() & 0xFFFFFFFFL;
+            if (!Arrays.equals(magic, MAGIC) || version != VERSION
+                    || layout != PACKED && layout != INT || width <= 0
+                    || height <= 0) {
+                throw new RGBException("header", 0, 0);
+            }
+
+            int bytesPerPixel = layout == INT ? 4 : 3;
+            long pixels = (long) width * height;
+            long present = (channel.size() - HEADER_SIZE) / bytesPerPixel;
+            if (present < pixels) {
+                throw new RGBException("truncated", (int) (present % width),
+                        (int) (present / width));
+            }
+
+            Picture picture = new Picture(width, height);
+            int[] data = picture.getRGBData();
+            CRC32 crc = new CRC32();
+            long window = WINDOW_SIZE / bytesPerPixel * bytesPerPixel;
+            long size = pixels * bytesPerPixel;
+            int index = 0;
+            for (long pos = 0; pos < size; pos += window) {
+                ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_SIZE + pos, Math.min(window, size - pos))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                if ((flags & CHECKSUM) != 0) {
+                    crc.update(buf.duplicate());
+                }
+                index = layout == INT ? readInts(buf, data, index)
+                        : readPacked(buf, data, index);
+            }
+            if ((flags & CHECKSUM) != 0 && crc.getValue() != checksum) {
+                throw new RGBException("checksum", 0, 0);
+            }
+            return picture;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Copy pixels stored as ints into an array.
+     *
+     * @param buf the stored pixels
+     * @param data the array
+     * @param index where to put the first pixel
+     * @return index after the last pixel
+     */
+    private static int readInts(ByteBuffer buf, int[] data, int index) {
+        IntBuffer ints = buf.asIntBuffer();
+        int n = ints.remaining();
+        ints.get(data, index, n);
+        return index + n;
+    }
+
+    /**
+     * Copy pixels stored as 3 bytes each into an array.
+     *
+     * @param buf the stored pixels
+     * @param data the array
+     * @param index where to put the first pixel
+     * @return index after the last pixel
+     */
+    private static int readPacked(ByteBuffer buf, int[] data, int index) {
+        while (buf.hasRemaining()) {
+            int r = buf.get() & 0xFF;
+            int g = buf.get() & 0xFF;
+            int b = buf.get() & 0xFF;
+            data[index++] = (r << 16) + (g << 8) + b;
+        }
+        return index;
+    }
+
+    /**
+     * Saves a picture to an RGBB file, with one int per pixel and a checksum.
+     *
+     * @param path the path to the file
+     * @param picture the picture to save
+     * @throws FileNotFoundException if path is not found
+     */
+    public static void save(String path, Picture picture)
+            throws FileNotFoundException {
+        save(path, picture, INT, true);
+    }
+
+    /**
+     * Saves a picture to an RGBB file.
+     *
+     * @param path the path to the file
+     * @param picture the picture to save
+     * @param layout PACKED or INT
+     * @param checksum whether to store a checksum of the pixels
+     * @throws FileNotFoundException if path is not found
+     */
+    public static void save(String path, Picture picture, int layout,
+            boolean checksum) throws FileNotFoundException {
+        if (layout != PACKED && layout != INT) {
+            throw new IllegalArgumentException("unknown layout: " + layout);
+        }
+        FileOutputStream out = new FileOutputStream(path);
+        try (FileChannel channel = out.getChannel()) {
+            int width = picture.width();
+            int height = picture.height();
+            ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            buf.put(MAGIC).put(VERSION).put((byte) layout)
+                    .put(checksum ? CHECKSUM : 0).put((byte) 0)
+                    .putInt(width).putInt(height).putInt(0);
+
+            CRC32 crc = new CRC32();
+            int bytesPerPixel = layout == INT ? 4 : 3;
+            int[] row = new int[width];
+            for (int y = 0; y < height; y++) {
+                picture.getRGBRow(y, row);
+                for (int x = 0; x < width; x++) {
+                    if (buf.remaining() < bytesPerPixel) {
+                        write(channel, buf, crc);
+                    }
+                    int rgb = row[x];
+                    if (layout == INT) {
+                        buf.putInt(rgb & 0xFFFFFF);
+                    } else {
+                        buf.put((byte) (rgb >> 16)).put((byte) (rgb >> 8))
+                                .put((byte) rgb);
+                    }
+                }
+            }
+            write(channel, buf, crc);
+
+            if (checksum) {
+                ByteBuffer value = ByteBuffer.allocate(4)
+                        .order(ByteOrder.LITTLE_ENDIAN)
+                        .putInt((int) crc.getValue());
+                value.flip();
+                channel.write(value, CHECKSUM_OFFSET);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write the buffer to the channel, adding its pixel bytes to the checksum.
+     *
+     * @param channel where to write
+     * @param buf the bytes to write
+     * @param crc checksum of the pixel bytes so far
+     * @throws IOException if the channel cannot be written
+     */
+    private static void write(FileChannel channel, ByteBuffer buf, CRC32 crc)
+            throws IOException {
+        buf.flip();
+        ByteBuffer pixels = buf.duplicate();
+        if (channel.position() == 0) {
+            pixels.position(HEADER_SIZE);
+        }
+        crc.update(pixels);
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+
+}
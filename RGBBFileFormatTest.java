@@ -0,0 +1,64 @@
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+
+/**
+ * Tests for RGBBFileFormat. Each picture is saved in RGBB format and loaded
+ * back, and must come back unchanged.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+public class RGBBFileFormatTest {
+
+    /**
+     * Tests saving and loading pictures in each layout.
+     */
+    @Test
+    public void testRoundTrip() {
+        testRoundTrip("3x4.png", RGBBFileFormat.INT, true);
+        testRoundTrip("6x5.png", RGBBFileFormat.INT, false);
+        testRoundTrip("3x4.png", RGBBFileFormat.PACKED, true);
+        testRoundTrip("6x5.png", RGBBFileFormat.PACKED, false);
+    }
+
+    /**
+     * Saves a picture in RGBB format and loads it back.
+     *
+     * @param picfile path to the jpg/png file
+     * @param layout RGBBFileFormat.PACKED or RGBBFileFormat.INT
+     * @param checksum whether to store a checksum
+     */
+    private void testRoundTrip(String picfile, int layout, boolean checksum) {
+        String outfile = picfile.substring(0, picfile.length() - 3) + "rgbb";
+        try {
+            Picture expect = new Picture(picfile);
+            RGBBFileFormat.save(outfile, expect, layout, checksum);
+            Picture actual = RGBBFileFormat.load(outfile);
+            assertEquals(expect, actual, outfile);
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            new File(outfile).delete();
+        }
+    }
+
+    /**
+     * Tests that a text file is not mistaken for an RGBB file.
+     */
+    @Test
+    public void testError() {
+        try {
+            RGBBFileFormat.load("3x4.txt");
+            fail("RGBException not thrown: header");
+        } catch (FileNotFoundException e) {
+            fail(e);
+        } catch (RGBException e) {
+            assertEquals("header (x=0, y=0)", e.getMessage());
+        }
+    }
+
+}
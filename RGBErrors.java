@@ -0,0 +1,116 @@
+/**
+ * Records the first location of each kind of format error found while parsing
+ * an RGB file. The kinds are listed in the order that load() has always
+ * checked them, so an error of an earlier kind anywhere in the file takes
+ * precedence over an error of a later kind.
+ * <p>
+ * In fail-fast mode, only the first error found is kept, so parsing can stop
+ * as soon as it is found. Errors are then ordered by where they are found:
+ * by row, then by column. Several errors in the same pixel are ordered as
+ * above (commas, parens, range, number). A blank line is found at its
+ * newline. A ragged row is found at its newline if it is too short, or at the
+ * tab before its first extra pixel if it is too long.
+ * <p>
+ * A file whose header line gives a different height than its number of rows
+ * has a header error, which comes after every other kind. It is found at the
+ * first extra row, or at the end of the file if rows are missing. A row whose
+ * width differs from the header is ragged.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+class RGBErrors {
+
+    static final int COMMAS = 0;
+    static final int PARENS = 1;
+    static final int EMPTY = 2;
+    static final int BLANK = 3;
+    static final int RANGE = 4;
+    static final int NUMBER = 5;
+    static final int RAGGED = 6;
+    static final int HEADER = 7;
+
+    private static final String[] MESSAGES = {"commas", "parens", "empty file",
+        "blank line", "range", "number", "ragged", "header"};
+
+    private final boolean[] found = new boolean[MESSAGES.length];
+    private final int[] xs = new int[MESSAGES.length];
+    private final int[] ys = new int[MESSAGES.length];
+    private final boolean failFast;
+    private boolean any;
+
+    /**
+     * Create a record of errors where earlier kinds take precedence.
+     */
+    RGBErrors() {
+        this(false);
+    }
+
+    /**
+     * Create a record of errors.
+     *
+     * @param failFast if true, keep only the first error found
+     */
+    RGBErrors(boolean failFast) {
+        this.failFast = failFast;
+    }
+
+    /**
+     * Record an error unless one of the same kind was already found.
+     *
+     * @param kind kind of error
+     * @param x column index
+     * @param y row index
+     * @return true if no later error can change the result
+     */
+    boolean record(int kind, int x, int y) {
+        if (failFast && any) {
+            return true;
+        }
+        if (!found[kind]) {
+            found[kind] = true;
+            xs[kind] = x;
+            ys[kind] = y;
+            any = true;
+        }
+        return failFast || found[COMMAS];
+    }
+
+    /**
+     * Add the errors found in a later part of the same file, keeping the
+     * earlier location of each kind of error found in both.
+     *
+     * @param later errors found after the ones recorded here
+     */
+    void merge(RGBErrors later) {
+        for (int kind = 0; kind < MESSAGES.length; kind++) {
+            if (later.found[kind]) {
+                record(kind, later.xs[kind], later.ys[kind]);
+            }
+        }
+    }
+
+    /**
+     * Check if any error has been recorded.
+     *
+     * @return true if at least one error was found
+     */
+    boolean isEmpty() {
+        return !any;
+    }
+
+    /**
+     * Throw the recorded error with the highest precedence, if any.
+     *
+     * @throws RGBException the first error in precedence order
+     */
+    void check() throws RGBException {
+        for (int kind = 0; kind < MESSAGES.length; kind++) {
+            if (found[kind]) {
+                RGBMetrics.error(MESSAGES[kind]);
+                throw new RGBException(MESSAGES[kind], xs[kind], ys[kind]);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,35 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for one run of a phase recorded by
+ * {@link RGBMetrics}. Events are only created while metrics are enabled, and
+ * only written while a recording has the event enabled.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+@Name("RGBFileFormat.Phase")
+@Label("RGB Phase")
+@Category("RGB File Format")
+@Description("One phase of loading or saving an RGB file")
+class RGBEvent extends jdk.jfr.Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Pixels")
+    long pixels;
+
+    // for RGBMetrics; transient fields are not written to the recording
+    transient int index;
+    transient long start;
+
+}
@@ -1,11 +1,24 @@
-import java.awt.Color;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.PrintWriter;
-import java.util.Scanner;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
 
 /**
- * Utility class for reading/writing files in RGB format.
+ * Utility class for reading/writing files in RGB format. Files that start
+ * with the gzip magic bytes are decompressed when loaded, and files whose
+ * names end with ".gz" are compressed when saved.
+ * <p>
+ * A file may start with a header line, "#RGB width height", which lets
+ * readers size the picture before reading any pixel. Files without one load
+ * exactly as before. A file saved with a header may also get an index of its
+ * rows, kept next to it with ".idx" added to its name, which lets
+ * loadParallel() split it without scanning it first.
  * 
  * @author Ben McCray
  * @version 2/23/22
@@ -13,437 +26,325 @@ import java.util.Scanner;
 public class RGBFileFormat {
 
     /**
-     * Find width of picture.
+     * Loads a picture from an RGB file. Every pixel must be exactly
+     * "(r, g, b)", with spaces allowed only around the values; anything else
+     * in a pixel, such as a digit before its '(' or a space inside a number,
+     * is an error.
      * 
-     * @param file file
-     * @return width of picture
+     * @param path the path to the file
+     * @return the corresponding picture
+     * @throws FileNotFoundException if path is not found
+     * @throws RGBException if file format is incorrect
      */
-    private static int findWidth(File file) {
-        int width = 0;
-        int charCount = 0;
-        String str = "";
-        Scanner s = null;
-        try {
-            s = new Scanner(file).useDelimiter("[^0-9\n]+");
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        }
-        // loop through file, scanner only picks up numbers. If all three number
-        // values are found, add 1 to width and reset charCount
-        while (s.hasNext()) {
-            str = s.next();
-            charCount++;
-            if (charCount == 3) {
-                charCount = 0;
-                width++;
-            }
-            if (str.equals("\n")) {
-                break;
-            }
-        }
-        return width;
+    public static Picture load(String path)
+            throws FileNotFoundException, RGBException {
+        return RGBParser.parse(path);
     }
 
     /**
-     * Find width of a specific line, used for ragged.
+     * Loads a picture from RGB text read from a stream, such as a socket or
+     * an in-memory buffer. The text is read once, up to the end of the
+     * stream, and must not be compressed. The stream is not closed.
      * 
-     * @param line specific line
-     * @return width of line
+     * @param in the stream
+     * @return the corresponding picture
+     * @throws RGBException if file format is incorrect
      */
-    private static int findSpecificWidth(String line) {
-        int width = 0;
-        int charCount = 0;
-        String str = "";
-
-        Scanner scanner = new Scanner(line).useDelimiter("[^0-9\n]+");
-        while (scanner.hasNext()) {
-            str = scanner.next();
-            charCount++;
-            if (charCount == 3) {
-                charCount = 0;
-                width++;
-            }
-            if (str.equals("\n")) {
-                break;
-            }
-        }
-        return width;
+    public static Picture load(InputStream in) throws RGBException {
+        return RGBParser.parse(Channels.newChannel(in), false);
     }
 
     /**
-     * Find height of picture.
+     * Loads a picture from RGB text read from a channel. The text is read
+     * once, up to the end of the channel, and must not be compressed. The
+     * channel is not closed.
      * 
-     * @param file file
-     * @return height picture height
+     * @param channel the channel
+     * @return the corresponding picture
+     * @throws RGBException if file format is incorrect
      */
-    private static int findHeight(File file) {
-        int height = 0;
-        Scanner s = null;
-        try {
-            s = new Scanner(file).useDelimiter("[^0-9\n]+");
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        }
-
-        // Loop through again with a reset scanner to find height based on
-        // number of lines
-        try {
-            s = new Scanner(file);
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        }
-        while (s.hasNextLine()) {
-            height++;
-            s.nextLine();
-        }
-        s.close();
-        return height;
+    public static Picture load(ReadableByteChannel channel)
+            throws RGBException {
+        return RGBParser.parse(channel, false);
     }
 
     /**
-     * Create a picture object based on a file.
+     * Loads a picture from an RGB file, stopping at the first error instead
+     * of reading the whole file. Errors are reported in the order they occur
+     * in the file, so the result may differ from load() when a file has more
+     * than one error. Errors in the same pixel are reported in the order
+     * commas, parens, range, number; a ragged row is reported at its end if
+     * it is too short, or at its first extra pixel if it is too long.
      * 
      * @param path the path to the file
-     * @return picture object
-     */
-    private static Picture createPicture(String path) {
-        File file = new File(path);
-        int width = findWidth(file);
-        int height = findHeight(file);
-
-        Picture picture = new Picture(width, height);
-        return picture;
-    }
-
-    /**
-     * If the file is empty, throw an RGBException with the message "empty
-     * file".
-     * 
-     * @param file file
-     * @throws RGBException empty file
+     * @return the corresponding picture
+     * @throws FileNotFoundException if path is not found
+     * @throws RGBException if file format is incorrect
      */
-    private static void findEmptyFile(File file) throws RGBException {
-        if (file.length() == 0) {
-            throw new RGBException("empty file", 0, 0);
-        }
+    public static Picture loadFailFast(String path)
+            throws FileNotFoundException, RGBException {
+        return RGBParser.parse(path, true);
     }
 
     /**
-     * If any line is blank, throw an RGBException with the message "blank
-     * line".
+     * Loads a picture from an RGB file by mapping the file into memory. This
+     * is faster than load() for very large files, including files over 2 GB.
+     * A gzip compressed file is read as by load().
      * 
-     * @param file file
-     * @throws RGBException blank line
-     * @throws FileNotFoundException if file doesn't exist
+     * @param path the path to the file
+     * @return the corresponding picture
+     * @throws FileNotFoundException if path is not found
+     * @throws RGBException if file format is incorrect
      */
-    private static void findBlankLine(File file)
-            throws RGBException, FileNotFoundException {
-        Scanner scanner = new Scanner(file);
-
-        int lineNumber = 0;
-        while (scanner.hasNextLine()) {
-            if (scanner.nextLine().equals("")) {
-                throw new RGBException("blank line", 0, lineNumber);
-            }
-            lineNumber++;
-        }
+    public static Picture loadMapped(String path)
+            throws FileNotFoundException, RGBException {
+        return RGBParser.parseMapped(path);
     }
 
     /**
-     * If a number is not in the range 0 to 255, throw an RGBException with the
-     * message "range".
+     * Loads a picture from an RGB file, parsing groups of rows on several
+     * threads at once. Errors are reported exactly as by load(). A gzip
+     * compressed file is read as by load().
      * 
-     * @param file file
-     * @throws RGBException range
-     * @throws FileNotFoundException if file doesn't exist
+     * @param path the path to the file
+     * @param parallelism the number of threads to use
+     * @return the corresponding picture
+     * @throws FileNotFoundException if path is not found
+     * @throws RGBException if file format is incorrect
      */
-    private static void findRangeException(File file)
-            throws RGBException, FileNotFoundException {
-        Scanner scanner = new Scanner(file).useDelimiter("[^0-9-]+");
-        int width = findWidth(file);
-        int x = 0;
-        int index = 0;
-        int y = 0;
-        int test = 0;
-        try {
-            while (scanner.hasNext()) {
-                test = scanner.nextInt();
-                if (index < 3) {
-                    if (test > 255 || test < 0) {
-                        throw new RGBException("range", x, y);
-                    }
-                }
-                index++;
-                if (index == 3) {
-                    index = 0;
-                    x++;
-                }
-
-                if (x == width) {
-                    x = 0;
-                    y++;
-                }
-            }
-        } catch (IllegalArgumentException e) {
-            throw new RGBException("range", x, y);
-        }
-
+    public static Picture loadParallel(String path, int parallelism)
+            throws FileNotFoundException, RGBException {
+        return RGBParallelParser.parse(path, parallelism);
     }
 
     /**
-     * If the file has an inconsistent number of columns, throw an RGBException
-     * with the message "ragged".
+     * Loads a picture from an RGB file into a compact picture, which uses 3
+     * bytes of memory per pixel instead of 4. The pixels are parsed straight
+     * into bytes, and are only converted to ints when they are asked for.
+     * Errors are reported exactly as by load().
      * 
-     * @param file file
-     * @throws RGBException ragged
-     * @throws FileNotFoundException if file doesn't exist
+     * @param path the path to the file
+     * @return the corresponding picture
+     * @throws FileNotFoundException if path is not found
+     * @throws RGBException if file format is incorrect
      */
-    private static void findRagged(File file)
-            throws RGBException, FileNotFoundException {
-        Scanner scanner = new Scanner(file);
-
-        int width = findWidth(file);
-        int height = findHeight(file);
-
-        for (int y = 0; y < height; y++) {
-            if (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                int otherWidth = findSpecificWidth(line);
-                if (otherWidth != width) {
-                    throw new RGBException("ragged", 0, y);
-                }
-            }
-        }
+    public static Picture loadCompact(String path)
+            throws FileNotFoundException, RGBException {
+        return RGBParser.parseCompact(path);
     }
 
     /**
-     * If a pixel does not begin with '(' or end with ')', throw an RGBException
-     * with the message "parens".
+     * Loads a picture from an RGB file into memory outside the Java heap,
+     * for pictures too large for a Picture. The file is read twice, once to
+     * find its dimensions and once to parse it, unless it has a header line.
+     * The caller must close the buffer.
      * 
-     * @param file file
-     * @throws FileNotFoundException if file doesn't exist
-     * @throws RGBException if parens don't match
+     * @param path the path to the file
+     * @return the pixels of the picture
+     * @throws FileNotFoundException if path is not found
+     * @throws RGBException if file format is incorrect
      */
-    private static void findParensException(File file)
+    public static PixelBuffer loadPixels(String path)
             throws FileNotFoundException, RGBException {
-        int parens1 = 0;
-        int parens2 = 0;
-        int col = 0;
-        int row = 0;
-        String pixel = "";
-        Scanner scanner = new Scanner(file).useDelimiter("\\t");
-        while (scanner.hasNextLine()) {
-            pixel = scanner.next();
-
-            for (int i = 0; i < pixel.length(); i++) {
-                if (pixel.charAt(i) == '(') {
-                    parens1++;
-                }
-                if (pixel.charAt(i) == ')') {
-                    parens2++;
-                }
-                if (pixel.charAt(i) == '\n') {
-                    if (parens1 == parens2) {
-                        col = 0;
-                    } else if (parens1 != parens2) {
-                        throw new RGBException("parens", col, row);
-                    }
-                    row++;
-                }
-            }
-            if (parens1 == parens2) {
-                col++;
-            } else if (parens1 != parens2) {
-                throw new RGBException("parens", col, row);
-            }
-        }
+        return RGBParser.parsePixels(path);
     }
 
     /**
-     * If a pixel does not have exactly two commas, throw an RGBException with
-     * the message "commas".
+     * Loads a rectangle of a picture from an RGB file, parsing only the
+     * pixels inside it. Rows above it and columns beside it are counted but
+     * not checked, and rows below it are not read, so a file that load()
+     * rejects may still give a region. Errors are reported as by load(), at
+     * their location in the whole picture.
      * 
-     * @param file file
-     * @throws FileNotFoundException if file doesn't exist
-     * @throws RGBException if commas don't match
+     * @param path the path to the file
+     * @param x the column of the left edge of the region
+     * @param y the row of the top edge of the region
+     * @param width the width of the region
+     * @param height the height of the region
+     * @return a picture of just the region
+     * @throws FileNotFoundException if path is not found
+     * @throws RGBException if file format is incorrect inside the region
+     * @throws IllegalArgumentException if the region is empty or not inside
+     *         the picture
      */
-    private static void findCommasException(File file)
-            throws FileNotFoundException, RGBException {
-        int commas = 0;
-        int col = 0;
-        int row = 0;
-        String pixel = "";
-        Scanner scanner = new Scanner(file).useDelimiter("\t");
-        while (scanner.hasNextLine()) {
-            pixel = scanner.next();
-            for (int i = 0; i < pixel.length(); i++) {
-                if (pixel.charAt(i) == ',') {
-                    commas++;
-                }
-                if (pixel.charAt(i) == '\n' && i == pixel.length() - 1
-                        && commas == 2) {
-                    break;
-                }
-                if (pixel.charAt(i) == '\n' && commas == 2) {
-                    row++;
-                    col = 0;
-                    commas = 0;
-                }
-
-            }
-            if (commas == 2) {
-                col++;
-                commas = 0;
-            } else if (commas != 2) {
-                throw new RGBException("commas", col, row);
-            }
-
-        }
+    public static Picture loadRegion(String path, int x, int y, int width,
+            int height) throws FileNotFoundException, RGBException {
+        return RGBRegionParser.parse(path, x, y, width, height);
     }
 
     /**
-     * If a number does not parse as an integer, throw an RGBException with the
-     * message "number".
-     * 
-     * @param file file
-     * @throws FileNotFoundException if file doesn't exist
-     * @throws RGBException if integer can't parse
+     * Loads a picture from an RGB file, keeping an RGBB snapshot of it in a
+     * cache directory. The first load parses the file as load() does and,
+     * if it has no errors, saves the snapshot; later loads of the unchanged
+     * file map the snapshot instead of parsing the text. A file is taken to
+     * be unchanged if its path, size and last-modified time are the same.
+     * The directory may be emptied at any time, and old snapshots of files
+     * that have changed are not removed.
+     *
+     * @param path the path to the file
+     * @param cacheDir the directory of snapshots, created if needed
+     * @return the corresponding picture
+     * @throws FileNotFoundException if path is not found
+     * @throws RGBException if file format is incorrect
      */
-    private static void findNumberException(File file)
+    public static Picture loadCached(String path, String cacheDir)
             throws FileNotFoundException, RGBException {
-        String parse = "";
-        int x = 0;
-        int y = 0;
-        int index = 0;
-        Scanner scanner = new Scanner(file).useDelimiter("[(,)\t( ]+");
-        while (scanner.hasNext()) {
-            parse = scanner.next();
-            try {
-                if (parse.equals("\n")) {
-                    y++;
-                    x = 0;
-                    index = 0;
-                } else {
-                    int check = Integer.parseInt(parse);
-                }
-            } catch (NumberFormatException e) {
-                throw new RGBException("number", x, y);
-            }
-            index++;
-            if (index == 3) {
-                x++;
-                index = 0;
-            }
-        }
+        return RGBSnapshot.load(path, cacheDir);
     }
 
     /**
-     * Helper method for finding and throwing every possible exception for
-     * load().
+     * Finds the width, height and size of an RGB file without parsing its
+     * pixels. The width comes from the first line and the height from a
+     * count of the newlines, so the file is read once but no pixel is
+     * checked; use load() to find out whether the file is valid.
      * 
-     * @param path path to file
-     * @throws RGBException for any error in the txt file
-     * @throws FileNotFoundException if file doesn't exist
+     * @param path the path to the file
+     * @return the dimensions of the file
+     * @throws FileNotFoundException if path is not found
      */
-    private static void findException(String path)
-            throws RGBException, FileNotFoundException {
-        File file = new File(path);
-
-        findCommasException(file);
-        findParensException(file);
-        findEmptyFile(file);
-        findBlankLine(file);
-        findRangeException(file);
-        findNumberException(file);
-        findRagged(file);
-
+    public static RGBInfo probe(String path) throws FileNotFoundException {
+        try (ReadableByteChannel channel = RGBGzip.open(path)) {
+            return RGBScan.probe(channel, new File(path).length());
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     /**
-     * Assign each pixel color to picture object.
+     * Saves a picture to an RGB file.
      * 
-     * @param path path to file
-     * @return filled in picture
-     * @throws FileNotFoundException if file not found
+     * @param path the path to the file
+     * @param picture the picture to save
+     * @throws FileNotFoundException if path is not found
      */
-    private static Picture assignPicture(String path)
+    public static void save(String path, Picture picture)
             throws FileNotFoundException {
-        Picture picture = createPicture(path);
-        File file = new File(path);
-        Scanner scanner = new Scanner(file).useDelimiter("[^0-9]+");
-
-        int r = 0;
-        int g = 0;
-        int b = 0;
-
-        for (int y = 0; y < picture.height(); y++) {
-            for (int x = 0; x < picture.width(); x++) {
-                if (scanner.hasNext()) {
-                    r = scanner.nextInt();
-                    g = scanner.nextInt();
-                    b = scanner.nextInt();
-
-                    Color color = new Color(r, g, b);
-                    picture.set(x, y, color);
-                }
+        try (RGBRowWriter writer = new RGBRowWriter(path)) {
+            int[] row = new int[picture.width()];
+            for (int y = 0; y < picture.height(); y++) {
+                picture.getRGBRow(y, row);
+                writer.writeRow(row);
             }
         }
-        return picture;
     }
 
     /**
-     * Loads a picture from an RGB file.
+     * Saves pixels kept outside the heap to an RGB file.
      * 
      * @param path the path to the file
-     * @return the corresponding picture
+     * @param pixels the pixels to save
      * @throws FileNotFoundException if path is not found
-     * @throws RGBException if file format is incorrect
      */
-    public static Picture load(String path)
-            throws FileNotFoundException, RGBException {
-        findException(path);
-        Picture picture = assignPicture(path);
-        return picture;
+    public static void save(String path, PixelBuffer pixels)
+            throws FileNotFoundException {
+        try (RGBRowWriter writer = new RGBRowWriter(path)) {
+            int[] row = new int[pixels.width()];
+            for (int y = 0; y < pixels.height(); y++) {
+                pixels.getRGBRow(y, row);
+                writer.writeRow(row);
+            }
+        }
     }
 
     /**
-     * Saves a picture to an RGB file.
+     * Saves a picture to an RGB file that starts with a header line giving
+     * its dimensions, optionally with an index of where each row starts.
+     * Files saved this way can only be read by versions that understand the
+     * header. Saving without an index removes any old index of the file.
      * 
      * @param path the path to the file
      * @param picture the picture to save
+     * @param index if true, also write the index of the rows
      * @throws FileNotFoundException if path is not found
+     * @throws IllegalArgumentException if an index is asked for a gzip
+     *         compressed file
      */
-    public static void save(String path, Picture picture)
-            throws FileNotFoundException {
-        PrintWriter pw = new PrintWriter(path);
+    public static void saveWithHeader(String path, Picture picture,
+            boolean index) throws FileNotFoundException {
+        if (index && path.endsWith(".gz")) {
+            throw new IllegalArgumentException(
+                    "a compressed file cannot be indexed");
+        }
         int width = picture.width();
         int height = picture.height();
-        String[][] rgbValues = new String[height][width];
-
-        // get the rgb value for every pixel in picture.
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                Color pixel = picture.get(x, y);
-                int red = pixel.getRed();
-                int green = pixel.getGreen();
-                int blue = pixel.getBlue();
-                String rgb = String.format("(%3d, %3d, %3d)", red, green, blue);
-                rgbValues[y][x] = rgb;
+        long[] offsets = new long[height + 1];
+        long bytes = 0;
+        long pixels = 0;
+        RGBEvent event = RGBMetrics.begin(RGBMetrics.SAVE);
+        try {
+            try (WritableByteChannel channel = RGBGzip.create(path)) {
+                RGBWriter writer = new RGBWriter(channel);
+                writer.writeHeader(width, height);
+                int[] row = new int[width];
+                for (int y = 0; y < height; y++) {
+                    offsets[y] = writer.position();
+                    picture.getRGBRow(y, row);
+                    writer.writeRow(row, 0, width);
+                }
+                offsets[height] = writer.position();
+                writer.flush();
+            }
+            // only a file written in full counts as saved
+            bytes = offsets[height];
+            pixels = (long) width * height;
+            if (index) {
+                RGBIndex.write(path, width, offsets);
+            } else {
+                Files.deleteIfExists(RGBIndex.path(path));
             }
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            RGBMetrics.end(event, bytes, pixels);
         }
-        // assign each string rgb to a txt file.
-        for (int i = 0; i < rgbValues.length; i++) {
-            for (int j = 0; j < rgbValues[i].length; j++) {
-                if (j < rgbValues[i].length - 1) {
-                    pw.print(rgbValues[i][j] + "\t");
-                } else {
-                    pw.println(rgbValues[i][j]);
-                }
+    }
+
+    /**
+     * Writes a picture as RGB text to a stream. The stream is flushed but
+     * not closed.
+     * 
+     * @param out the stream
+     * @param picture the picture to save
+     */
+    public static void save(OutputStream out, Picture picture) {
+        save(Channels.newChannel(out), picture);
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
+    /**
+     * Writes a picture as RGB text to a channel. The channel is not closed.
+     * 
+     * @param channel the channel
+     * @param picture the picture to save
+     */
+    public static void save(WritableByteChannel channel, Picture picture) {
+        long bytes = 0;
+        long pixels = 0;
+        RGBEvent event = RGBMetrics.begin(RGBMetrics.SAVE);
+        RGBWriter writer = new RGBWriter(channel);
+        int[] row = new int[picture.width()];
+        try {
+            for (int y = 0; y < picture.height(); y++) {
+                picture.getRGBRow(y, row);
+                writer.writeRow(row, 0, row.length);
             }
-            // pw.println();
+            writer.flush();
+            // only text written in full counts as saved
+            bytes = writer.position();
+            pixels = (long) picture.width() * picture.height();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            RGBMetrics.end(event, bytes, pixels);
         }
-        pw.close();
     }
 
 }
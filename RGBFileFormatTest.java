@@ -1,9 +1,26 @@
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.Test;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Scanner;
+import java.util.zip.GZIPOutputStream;
+import javax.imageio.ImageIO;
 
 /**
  * Example tests for RGBFileFormat. The private helper methods assert that the
@@ -72,6 +89,7 @@ public class RGBFileFormatTest {
         testError("range.txt", "range", 0, 2);
         testError("number.txt", "number", 1, 2);
         testError("ragged.txt", "ragged", 0, 1);
+        testError("order.txt", "commas", 1, 3);
     }
 
     /**
@@ -94,6 +112,171 @@ public class RGBFileFormatTest {
         }
     }
 
+    /**
+     * Tests loading good and bad RGB files by mapping them into memory.
+     */
+    @Test
+    public void testLoadMapped() {
+        testLoadMapped("3x4.png", "3x4.txt");
+        testLoadMapped("6x5.png", "6x5.txt");
+        testErrorMapped("3x4.bad", "commas", 1, 1);
+        testErrorMapped("6x5.bad", "parens", 2, 1);
+        testErrorMapped("empty.txt", "empty file", 0, 0);
+        testErrorMapped("blank.txt", "blank line", 0, 2);
+        testErrorMapped("range.txt", "range", 0, 2);
+        testErrorMapped("number.txt", "number", 1, 2);
+        testErrorMapped("ragged.txt", "ragged", 0, 1);
+        testErrorMapped("order.txt", "commas", 1, 3);
+    }
+
+    /**
+     * Tests loading a valid RGB file by mapping it into memory.
+     * 
+     * @param picfile path to the jpg/png file
+     * @param rgbfile path to the rgb/txt file
+     */
+    private void testLoadMapped(String picfile, String rgbfile) {
+        try {
+            Picture expect = new Picture(picfile);
+            Picture actual = RGBFileFormat.loadMapped(rgbfile);
+            comparePictures(expect, actual, rgbfile + " mapped");
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Tests loading an invalid RGB file by mapping it into memory.
+     * 
+     * @param rgbfile path to the rgb/txt file
+     * @param msg expected message of the RGBException
+     * @param x expected col index of the RGBException
+     * @param y expected row index of the RGBException
+     */
+    private void testErrorMapped(String rgbfile, String msg, int x, int y) {
+        String expect = String.format("%s (x=%d, y=%d)", msg, x, y);
+        try {
+            RGBFileFormat.loadMapped(rgbfile);
+            fail("RGBException not thrown: " + expect);
+        } catch (FileNotFoundException e) {
+            fail(e);
+        } catch (RGBException e) {
+            assertEquals(expect, e.getMessage());
+        }
+    }
+
+    /**
+     * Tests loading on several threads, including a file large enough to be
+     * split into chunks with errors of different kinds in different chunks.
+     */
+    @Test
+    public void testLoadParallel() {
+        String txtfile = "parallel.txt";
+        try {
+            comparePictures(new Picture("6x5.png"),
+                    RGBFileFormat.loadParallel("6x5.txt", 4), "6x5.txt");
+            testErrorParallel("order.txt", "commas", 1, 3);
+
+            // ragged in the first chunk, range and commas in the second,
+            // parens and commas in the third
+            writeLargeFile(txtfile, true);
+            testErrorParallel(txtfile, "commas", 7, 2000);
+            // parens in the third chunk outranks range and ragged before it
+            writeLargeFile(txtfile, false);
+            testErrorParallel(txtfile, "parens", 5, 3000);
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            new File(txtfile).delete();
+        }
+    }
+
+    /**
+     * Tests that load() and loadParallel() throw the same error for a file.
+     *
+     * @param rgbfile path to the rgb/txt file
+     * @param msg expected message of the RGBException
+     * @param x expected col index of the RGBException
+     * @param y expected row index of the RGBException
+     */
+    private void testErrorParallel(String rgbfile, String msg, int x, int y) {
+        testError(rgbfile, msg, x, y);
+        String expect = String.format("%s (x=%d, y=%d)", msg, x, y);
+        try {
+            RGBFileFormat.loadParallel(rgbfile, 4);
+            fail("RGBException not thrown: " + expect);
+        } catch (FileNotFoundException e) {
+            fail(e);
+        } catch (RGBException e) {
+            assertEquals(expect, e.getMessage(), rgbfile + " parallel");
+        }
+    }
+
+    /**
+     * Writes a 4 MB RGB file of 100 by 4000 pixels with an error of a
+     * different kind in each of several rows.
+     *
+     * @param path path to the file
+     * @param commas whether to include the two commas errors
+     * @throws IOException if the file cannot be written
+     */
+    private void writeLargeFile(String path, boolean commas)
+            throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int y = 0; y < 4000; y++) {
+            int width = y == 300 ? 99 : 100;
+            for (int x = 0; x < width; x++) {
+                String pixel = "(1, 2, 3)";
+                if (y == 1500 && x == 4) {
+                    pixel = "(1, 256, 3)";
+                } else if (y == 3000 && x == 5) {
+                    pixel = "(1, 2, 3";
+                } else if (commas && (y == 2000 && x == 7
+                        || y == 3500 && x == 2)) {
+                    pixel = "(1, 2 3)";
+                }
+                text.append(x == 0 ? "" : "\t").append(pixel);
+            }
+            text.append('\n');
+        }
+        Files.write(Paths.get(path), text.toString().getBytes("US-ASCII"));
+    }
+
+    /**
+     * Tests files that should throw RGBException at the first error found.
+     */
+    @Test
+    public void testFailFast() {
+        testFailFast("3x4.bad", "commas", 1, 1);
+        testFailFast("6x5.bad", "parens", 2, 1);
+        testFailFast("empty.txt", "empty file", 0, 0);
+        testFailFast("blank.txt", "blank line", 0, 2);
+        testFailFast("range.txt", "range", 0, 2);
+        testFailFast("number.txt", "number", 1, 2);
+        testFailFast("ragged.txt", "ragged", 0, 1);
+        testFailFast("order.txt", "ragged", 0, 1);
+    }
+
+    /**
+     * Tests loading an invalid RGB file in fail-fast mode.
+     * 
+     * @param rgbfile path to the rgb/txt file
+     * @param msg expected message of the RGBException
+     * @param x expected col index of the RGBException
+     * @param y expected row index of the RGBException
+     */
+    private void testFailFast(String rgbfile, String msg, int x, int y) {
+        String expect = String.format("%s (x=%d, y=%d)", msg, x, y);
+        try {
+            RGBFileFormat.loadFailFast(rgbfile);
+            fail("RGBException not thrown: " + expect);
+        } catch (FileNotFoundException e) {
+            fail(e);
+        } catch (RGBException e) {
+            assertEquals(expect, e.getMessage());
+        }
+    }
+
     /**
      * Tests saving existing pictures in RGB format.
      */
@@ -120,6 +303,800 @@ public class RGBFileFormatTest {
         }
     }
 
+    /**
+     * Tests finding the dimensions of RGB files without loading them.
+     */
+    @Test
+    public void testProbe() {
+        testProbe("3x4.txt", 3, 4);
+        testProbe("6x5.txt", 6, 5);
+        testProbe("empty.txt", 0, 0);
+    }
+
+    /**
+     * Tests probing one RGB file.
+     * 
+     * @param rgbfile path to the rgb/txt file
+     * @param width expected width
+     * @param height expected height
+     */
+    private void testProbe(String rgbfile, int width, int height) {
+        try {
+            RGBInfo info = RGBFileFormat.probe(rgbfile);
+            assertEquals(width, info.width(), rgbfile + " width");
+            assertEquals(height, info.height(), rgbfile + " height");
+            assertEquals(new File(rgbfile).length(), info.size(),
+                    rgbfile + " size");
+        } catch (FileNotFoundException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Tests loading from and saving to streams and channels.
+     */
+    @Test
+    public void testStreams() {
+        try {
+            Picture expect = new Picture("6x5.png");
+            byte[] text = Files.readAllBytes(Paths.get("6x5.txt"));
+            Picture actual = RGBFileFormat.load(new ByteArrayInputStream(text));
+            comparePictures(expect, actual, "6x5.txt stream");
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            RGBFileFormat.save(out, expect);
+            actual = RGBFileFormat.load(Channels.newChannel(
+                    new ByteArrayInputStream(out.toByteArray())));
+            comparePictures(expect, actual, "6x5.txt channel");
+
+            text = Files.readAllBytes(Paths.get("ragged.txt"));
+            RGBFileFormat.load(new ByteArrayInputStream(text));
+            fail("RGBException not thrown: ragged");
+        } catch (RGBException e) {
+            assertEquals("ragged (x=0, y=1)", e.getMessage());
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Tests that lines may end with "\r\n", but a '\r' anywhere else is an
+     * error.
+     */
+    @Test
+    public void testCarriageReturn() {
+        try {
+            byte[] text = "(1, 2, 3)\t(4, 5, 6)\r\n(7, 8, 9)\t(0, 0, 0)\r\n"
+                    .getBytes("US-ASCII");
+            Picture actual = RGBFileFormat.load(new ByteArrayInputStream(text));
+            assertEquals(2, actual.width());
+            assertEquals(2, actual.height());
+            assertEquals(0x070809, actual.getRGB(0, 1) & 0xFFFFFF);
+
+            text = "(64, 138, 1\r8)\n".getBytes("US-ASCII");
+            RGBFileFormat.load(new ByteArrayInputStream(text));
+            fail("RGBException not thrown: number");
+        } catch (RGBException e) {
+            assertEquals("number (x=0, y=0)", e.getMessage());
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Tests saving and loading gzip compressed RGB files.
+     */
+    @Test
+    public void testGzip() {
+        testGzip("3x4.png");
+        testGzip("6x5.png");
+    }
+
+    /**
+     * Tests that a picture saved to a .txt.gz file loads unchanged.
+     * 
+     * @param picfile path to the jpg/png file
+     */
+    private void testGzip(String picfile) {
+        String gzfile = picfile.substring(0, picfile.length() - 3) + "txt.gz";
+        try {
+            Picture expect = new Picture(picfile);
+            RGBFileFormat.save(gzfile, expect);
+            comparePictures(expect, RGBFileFormat.load(gzfile), gzfile);
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            new File(gzfile).delete();
+        }
+    }
+
+    /**
+     * Tests converting RGB files to png at the lowest and highest compression.
+     */
+    @Test
+    public void testConvertPng() {
+        String txtfile = "300x300.txt";
+        try {
+            RGBFileFormat.save(txtfile, gradient(300, 300));
+            for (int level : new int[] {0, 9}) {
+                testConvertPng("3x4.txt", level);
+                testConvertPng("6x5.txt", level);
+                // more than one IDAT chunk
+                testConvertPng(txtfile, level);
+            }
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            new File(txtfile).delete();
+        }
+    }
+
+    /**
+     * Tests converting invalid RGB files to png.
+     */
+    @Test
+    public void testConvertPngError() {
+        testConvertPngError("3x4.bad", "commas", 1, 1);
+        testConvertPngError("6x5.bad", "parens", 2, 1);
+        testConvertPngError("empty.txt", "empty file", 0, 0);
+        testConvertPngError("blank.txt", "blank line", 0, 2);
+        testConvertPngError("range.txt", "range", 0, 2);
+        testConvertPngError("number.txt", "number", 1, 2);
+        testConvertPngError("ragged.txt", "ragged", 0, 1);
+        testConvertPngError("order.txt", "commas", 1, 3);
+    }
+
+    /**
+     * Tests that converting an invalid RGB file to png throws the same error
+     * as load(), parses the file only once, and leaves no png behind.
+     * 
+     * @param rgbfile path to the rgb/txt file
+     * @param msg expected message of the RGBException
+     * @param x expected col index of the RGBException
+     * @param y expected row index of the RGBException
+     */
+    private void testConvertPngError(String rgbfile, String msg, int x,
+            int y) {
+        String expect = String.format("%s (x=%d, y=%d)", msg, x, y);
+        String pngfile = rgbfile + ".png";
+        RGBMetrics metrics = RGBMetrics.get();
+        metrics.setEnabled(true);
+        metrics.reset();
+        try {
+            ConvertPipeline.txtToPng(rgbfile, pngfile, 0);
+            fail("RGBException not thrown: " + expect);
+        } catch (RGBException e) {
+            assertEquals(expect, e.getMessage(), rgbfile);
+            assertEquals(Long.valueOf(1), metrics.getCounts().get("parse"),
+                    rgbfile + " parses");
+            assertEquals(Long.valueOf(1), metrics.getErrors().get(msg),
+                    rgbfile + " errors");
+            assertFalse(new File(pngfile).exists(), pngfile + " exists");
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            metrics.setEnabled(false);
+            new File(pngfile).delete();
+        }
+    }
+
+    /**
+     * Tests that a png converted from an RGB file decodes with ImageIO to the
+     * same pixels.
+     * 
+     * @param rgbfile path to the rgb/txt file
+     * @param level deflate level from 0 to 9
+     */
+    private void testConvertPng(String rgbfile, int level) {
+        String pngfile = rgbfile.substring(0, rgbfile.length() - 3) + level
+                + ".png";
+        try {
+            ConvertPipeline.txtToPng(rgbfile, pngfile, level);
+            Picture expect = RGBFileFormat.load(rgbfile);
+            BufferedImage actual = ImageIO.read(new File(pngfile));
+            assertEquals(expect.width(), actual.getWidth(),
+                    pngfile + " width");
+            assertEquals(expect.height(), actual.getHeight(),
+                    pngfile + " height");
+            for (int x = 0; x < expect.width(); x++) {
+                for (int y = 0; y < expect.height(); y++) {
+                    if ((expect.getRGB(x, y) & 0xFFFFFF)
+                            != (actual.getRGB(x, y) & 0xFFFFFF)) {
+                        fail(String.format("%s differs at (%d, %d)", pngfile,
+                                x, y));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            new File(pngfile).delete();
+        }
+    }
+
+    /**
+     * Tests converting images to RGB files, by PngReader for the kinds of
+     * png it decodes and by ImageIO for jpg.
+     */
+    @Test
+    public void testConvertImage() {
+        String txtfile = "300x300.txt";
+        String largefile = "300x300.0.png";
+        String indexfile = "6x5.index.png";
+        String alphafile = "6x5.alpha.png";
+        String jpgfile = "6x5.jpg";
+        try {
+            Picture picture = new Picture("6x5.png");
+            int width = picture.width();
+            int height = picture.height();
+            BufferedImage index = new BufferedImage(width, height,
+                    BufferedImage.TYPE_BYTE_INDEXED);
+            BufferedImage alpha = new BufferedImage(width, height,
+                    BufferedImage.TYPE_INT_ARGB);
+            BufferedImage rgb = new BufferedImage(width, height,
+                    BufferedImage.TYPE_INT_RGB);
+            for (int x = 0; x < width; x++) {
+                for (int y = 0; y < height; y++) {
+                    index.setRGB(x, y, picture.getRGB(x, y));
+                    rgb.setRGB(x, y, picture.getRGB(x, y));
+                    alpha.setRGB(x, y, picture.getRGB(x, y) & 0xFFFFFF
+                            | (x * 40 + y) << 24);
+                }
+            }
+            ImageIO.write(index, "png", new File(indexfile));
+            ImageIO.write(alpha, "png", new File(alphafile));
+            ImageIO.write(rgb, "jpg", new File(jpgfile));
+            RGBFileFormat.save(txtfile, gradient(300, 300));
+            ConvertPipeline.txtToPng(txtfile, largefile, 0);
+
+            testConvertImage("3x4.png", true);
+            testConvertImage("6x5.png", true);
+            testConvertImage(indexfile, true);
+            testConvertImage(alphafile, true);
+            // more than one IDAT chunk
+            testConvertImage(largefile, true);
+            testConvertImage(jpgfile, false);
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            for (String file : new String[] {txtfile, largefile, indexfile,
+                alphafile, jpgfile}) {
+                new File(file).delete();
+            }
+        }
+    }
+
+    /**
+     * Tests that converting an image to an RGB file writes exactly the same
+     * file as saving the picture loaded from it.
+     * 
+     * @param picfile path to the jpg/png file
+     * @param decoded whether PngReader should decode the file
+     */
+    private void testConvertImage(String picfile, boolean decoded) {
+        String expect = picfile + ".expect.txt";
+        String actual = picfile + ".txt";
+        try {
+            try (PngReader png = PngReader.open(picfile)) {
+                assertEquals(decoded, png != null, picfile + " decoded");
+            }
+            RGBFileFormat.save(expect, new Picture(picfile));
+            ConvertPipeline.imageToTxt(picfile, actual);
+            assertArrayEquals(Files.readAllBytes(Paths.get(expect)),
+                    Files.readAllBytes(Paths.get(actual)), actual);
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            new File(expect).delete();
+            new File(actual).delete();
+        }
+    }
+
+    /**
+     * Tests converting a directory in batch mode, including a gzip compressed
+     * RGB file whose ".txt.gz" is replaced as a whole.
+     */
+    @Test
+    public void testConvertBatch() {
+        File dir = new File("batch");
+        try {
+            dir.mkdir();
+            RGBFileFormat.save("batch/a.txt.gz", new Picture("3x4.png"));
+            RGBFileFormat.save("batch/b.txt", new Picture("6x5.png"));
+            assertEquals(0, ConvertBatch.run(new String[] {"-batch",
+                "batch", "png"}), "batch status");
+            comparePictures(new Picture("3x4.png"),
+                    new Picture("batch/a.png"), "batch/a.png");
+            comparePictures(new Picture("6x5.png"),
+                    new Picture("batch/b.png"), "batch/b.png");
+            assertEquals(4, dir.list().length, "batch files");
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            deleteDirectory(dir);
+        }
+    }
+
+    /**
+     * Tests that files converted to the same destination in batch mode all
+     * fail without writing it.
+     */
+    @Test
+    public void testConvertBatchCollision() {
+        File dir = new File("batch");
+        try {
+            dir.mkdir();
+            RGBFileFormat.save("batch/a.txt.gz", new Picture("3x4.png"));
+            RGBFileFormat.save("batch/a.txt", new Picture("6x5.png"));
+            RGBFileFormat.save("batch/b.txt", new Picture("6x5.png"));
+            assertEquals(1, ConvertBatch.run(new String[] {"-batch",
+                "batch", "png"}), "batch status");
+            assertFalse(new File("batch/a.png").exists(), "batch/a.png");
+            comparePictures(new Picture("6x5.png"),
+                    new Picture("batch/b.png"), "batch/b.png");
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            deleteDirectory(dir);
+        }
+    }
+
+    /**
+     * Tests server mode on standard input with one request that converts and
+     * one that fails.
+     */
+    @Test
+    public void testConvertServer() {
+        String pngfile = "3x4.serve.png";
+        String badfile = "ragged.serve.png";
+        String requests = "3x4.txt " + pngfile + "\nragged.txt " + badfile
+                + "\n";
+        InputStream in = System.in;
+        PrintStream out = System.out;
+        ByteArrayOutputStream replies = new ByteArrayOutputStream();
+        try {
+            System.setIn(new ByteArrayInputStream(requests.getBytes()));
+            System.setOut(new PrintStream(replies));
+            assertEquals(0, ConvertServer.run(new String[] {"-serve",
+                "-threads", "2", "-queue", "100000"}), "server status");
+            System.setOut(out);
+            String[] lines = replies.toString().split("\n");
+            Arrays.sort(lines);
+            assertArrayEquals(new String[] {"ERROR ragged.txt " + badfile
+                + ": ragged (x=0, y=1)", "OK 3x4.txt " + pngfile}, lines);
+            comparePictures(RGBFileFormat.load("3x4.txt"),
+                    new Picture(pngfile), pngfile);
+            assertFalse(new File(badfile).exists(), badfile);
+            assertEquals(1, ConvertServer.run(new String[] {"-serve",
+                "-threads", "2", "-queue", "2147483647"}), "queue status");
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            System.setIn(in);
+            System.setOut(out);
+            new File(pngfile).delete();
+            new File(badfile).delete();
+        }
+    }
+
+    /**
+     * Deletes a directory and the files in it.
+     * 
+     * @param dir the directory
+     */
+    private void deleteDirectory(File dir) {
+        File[] files = dir.listFiles();
+        for (int i = 0; files != null && i < files.length; i++) {
+            files[i].delete();
+        }
+        dir.delete();
+    }
+
+    /**
+     * Creates a picture whose pixels all differ from their neighbors.
+     * 
+     * @param width the width of the picture
+     * @param height the height of the picture
+     * @return the picture
+     */
+    private Picture gradient(int width, int height) {
+        Picture picture = new Picture(width, height);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                picture.setRGB(x, y, x * 7919 + y * 104729);
+            }
+        }
+        return picture;
+    }
+
+    /**
+     * Tests loading compact pictures and saving them again.
+     */
+    @Test
+    public void testLoadCompact() {
+        String txtfile = "6x5.compact.txt";
+        String pngfile = "6x5.compact.png";
+        try {
+            Picture actual = RGBFileFormat.loadCompact("6x5.txt");
+            assertTrue(actual.isCompact());
+            comparePictures(new Picture("6x5.png"), actual, "6x5.txt compact");
+            RGBFileFormat.save(txtfile, actual);
+            compareFiles("6x5.txt", txtfile);
+            // writing an image copies the pixels instead of converting them
+            new ImageEncoder().write(pngfile, actual);
+            assertTrue(actual.isCompact(), "compact after write");
+            comparePictures(new Picture("6x5.png"), new Picture(pngfile),
+                    pngfile);
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            new File(txtfile).delete();
+            new File(pngfile).delete();
+        }
+    }
+
+    /**
+     * Tests that cached pictures are reused and cannot be changed by callers.
+     */
+    @Test
+    public void testPictureCache() {
+        PictureCache cache = new PictureCache(1 << 20);
+        try {
+            Picture first = cache.get("6x5.txt");
+            int rgb = first.getRGB(0, 0);
+            first.setRGB(0, 0, ~rgb);
+            Picture second = cache.get("6x5.txt");
+            assertEquals(1, cache.misses());
+            assertEquals(1, cache.hits());
+            assertEquals(rgb, second.getRGB(0, 0));
+            comparePictures(new Picture("6x5.png"), second, "6x5.txt cached");
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Tests loading through snapshots in a cache directory.
+     */
+    @Test
+    public void testLoadCached() {
+        File dir = new File("snapshots");
+        try {
+            Picture expect = new Picture("6x5.png");
+            comparePictures(expect,
+                    RGBFileFormat.loadCached("6x5.txt", dir.getPath()),
+                    "6x5.txt parsed");
+            assertEquals(1, dir.list().length);
+            comparePictures(expect,
+                    RGBFileFormat.loadCached("6x5.txt", dir.getPath()),
+                    "6x5.txt snapshot");
+            RGBFileFormat.loadCached("ragged.txt", dir.getPath());
+            fail("RGBException not thrown: ragged");
+        } catch (RGBException e) {
+            assertEquals("ragged (x=0, y=1)", e.getMessage());
+            assertEquals(1, dir.list().length);
+        } catch (FileNotFoundException e) {
+            fail(e);
+        } finally {
+            File[] files = dir.listFiles();
+            for (int i = 0; files != null && i < files.length; i++) {
+                files[i].delete();
+            }
+            dir.delete();
+        }
+    }
+
+    /**
+     * Tests that metrics count the pixels loaded and the errors thrown.
+     */
+    @Test
+    public void testMetrics() {
+        RGBMetrics metrics = RGBMetrics.get();
+        metrics.setEnabled(true);
+        metrics.reset();
+        try {
+            RGBFileFormat.load("6x5.txt");
+            assertEquals(30, metrics.getPixelsLoaded());
+            assertEquals(new File("6x5.txt").length(), metrics.getBytesRead());
+            assertEquals(Long.valueOf(1), metrics.getCounts().get("parse"));
+            RGBFileFormat.load("ragged.txt");
+            fail("RGBException not thrown: ragged");
+        } catch (RGBException e) {
+            assertEquals(Long.valueOf(1), metrics.getErrors().get("ragged"));
+            assertEquals(30, metrics.getPixelsLoaded());
+        } catch (FileNotFoundException e) {
+            fail(e);
+        } finally {
+            metrics.setEnabled(false);
+        }
+    }
+
+    /**
+     * Tests that a save that fails is timed but saves no bytes or pixels.
+     */
+    @Test
+    public void testMetricsSave() {
+        String txtfile = "6x5.header.txt";
+        Picture picture = new Picture("6x5.png");
+        RGBMetrics metrics = RGBMetrics.get();
+        metrics.setEnabled(true);
+        metrics.reset();
+        try {
+            RGBFileFormat.saveWithHeader(txtfile, picture, false);
+            long bytes = new File(txtfile).length();
+            assertEquals(bytes, metrics.getBytesWritten());
+            assertEquals(30, metrics.getPixelsSaved());
+
+            try {
+                RGBFileFormat.saveWithHeader("missing/6x5.txt", picture,
+                        false);
+                fail("FileNotFoundException not thrown");
+            } catch (FileNotFoundException e) {
+                assertEquals(Long.valueOf(2), metrics.getCounts().get("save"));
+                assertEquals(bytes, metrics.getBytesWritten());
+                assertEquals(30, metrics.getPixelsSaved());
+            }
+
+            WritableByteChannel full = new WritableByteChannel() {
+                @Override
+                public int write(ByteBuffer src) throws IOException {
+                    throw new IOException("disk full");
+                }
+
+                @Override
+                public boolean isOpen() {
+                    return true;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+            try {
+                RGBFileFormat.save(full, picture);
+                fail("UncheckedIOException not thrown");
+            } catch (UncheckedIOException e) {
+                assertEquals(Long.valueOf(3), metrics.getCounts().get("save"));
+                assertEquals(bytes, metrics.getBytesWritten());
+                assertEquals(30, metrics.getPixelsSaved());
+            }
+        } catch (FileNotFoundException e) {
+            fail(e);
+        } finally {
+            metrics.setEnabled(false);
+            new File(txtfile).delete();
+        }
+    }
+
+    /**
+     * Tests loading and saving pixels kept outside the heap.
+     */
+    @Test
+    public void testPixelBuffer() {
+        String txtfile = "6x5.pix.txt";
+        try (PixelBuffer pixels = RGBFileFormat.loadPixels("6x5.txt")) {
+            comparePictures(new Picture("6x5.png"), pixels.toPicture(),
+                    "6x5.txt pixels");
+            RGBFileFormat.save(txtfile, pixels);
+            compareFiles("6x5.txt", txtfile);
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            new File(txtfile).delete();
+        }
+    }
+
+    /**
+     * Tests loading invalid files into pixels kept outside the heap, which
+     * must throw the same error as load() without allocating a buffer for a
+     * header line that claims more pixels than the file holds.
+     */
+    @Test
+    public void testPixelBufferError() {
+        String txtfile = "huge.hdr.txt";
+        String gzfile = "huge.hdr.txt.gz";
+        try {
+            testErrorPixels("empty.txt", "empty file", 0, 0);
+            testErrorPixels("ragged.txt", "ragged", 0, 1);
+            testErrorPixels("order.txt", "commas", 1, 3);
+
+            byte[] text = "#RGB 40000 40000\n(1, 2, 3)\n".getBytes("US-ASCII");
+            Files.write(Paths.get(txtfile), text);
+            testError(txtfile, "ragged", 0, 0);
+            testErrorPixels(txtfile, "ragged", 0, 0);
+            try (OutputStream out = new GZIPOutputStream(
+                    new FileOutputStream(gzfile))) {
+                out.write(text);
+            }
+            testErrorPixels(gzfile, "ragged", 0, 0);
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            new File(txtfile).delete();
+            new File(gzfile).delete();
+        }
+    }
+
+    /**
+     * Tests loading an invalid RGB file into pixels kept outside the heap.
+     * 
+     * @param rgbfile path to the rgb/txt file
+     * @param msg expected message of the RGBException
+     * @param x expected col index of the RGBException
+     * @param y expected row index of the RGBException
+     */
+    private void testErrorPixels(String rgbfile, String msg, int x, int y) {
+        String expect = String.format("%s (x=%d, y=%d)", msg, x, y);
+        try (PixelBuffer pixels = RGBFileFormat.loadPixels(rgbfile)) {
+            fail("RGBException not thrown: " + expect);
+        } catch (FileNotFoundException e) {
+            fail(e);
+        } catch (RGBException e) {
+            assertEquals(expect, e.getMessage(), rgbfile + " pixels");
+        }
+    }
+
+    /**
+     * Tests loading regions of RGB files.
+     */
+    @Test
+    public void testLoadRegion() {
+        try {
+            Picture expect = new Picture("6x5.png");
+            Picture actual = RGBFileFormat.loadRegion("6x5.txt", 2, 1, 3, 4);
+            assertEquals(3, actual.width());
+            assertEquals(4, actual.height());
+            for (int x = 0; x < 3; x++) {
+                for (int y = 0; y < 4; y++) {
+                    assertEquals(expect.getRGB(x + 2, y + 1),
+                            actual.getRGB(x, y));
+                }
+            }
+            // the error in number.txt is outside this region
+            RGBFileFormat.loadRegion("number.txt", 2, 0, 4, 5);
+            RGBFileFormat.loadRegion("number.txt", 0, 1, 2, 2);
+            fail("RGBException not thrown: number");
+        } catch (RGBException e) {
+            assertEquals("number (x=1, y=2)", e.getMessage());
+        } catch (FileNotFoundException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Tests regions that are not inside the picture, including ones far too
+     * large to allocate, which must fail before any memory is allocated.
+     */
+    @Test
+    public void testLoadRegionOutside() {
+        String txtfile = "6x5.hdr.txt";
+        try {
+            RGBFileFormat.saveWithHeader(txtfile, new Picture("6x5.png"),
+                    false);
+            testRegionOutside("6x5.txt", 0, 0, 40000, 40000);
+            testRegionOutside("6x5.txt", 5, 4, 1, 40000);
+            testRegionOutside(txtfile, 0, 0, 40000, 40000);
+            testRegionOutside(txtfile, 0, 4, 6, 40000);
+        } catch (FileNotFoundException e) {
+            fail(e);
+        } finally {
+            new File(txtfile).delete();
+        }
+    }
+
+    /**
+     * Tests a region that should throw IllegalArgumentException.
+     * 
+     * @param rgbfile path to the rgb/txt file
+     * @param x column of the left edge of the region
+     * @param y row of the top edge of the region
+     * @param width width of the region
+     * @param height height of the region
+     */
+    private void testRegionOutside(String rgbfile, int x, int y, int width,
+            int height) {
+        String region = String.format("%s (%d, %d, %d, %d)", rgbfile, x, y,
+                width, height);
+        try {
+            RGBFileFormat.loadRegion(rgbfile, x, y, width, height);
+            fail("IllegalArgumentException not thrown: " + region);
+        } catch (IllegalArgumentException e) {
+            assertEquals("region is outside the picture", e.getMessage(),
+                    region);
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Tests loading regions of files with a header but fewer rows than it
+     * says, which report the same error as load().
+     */
+    @Test
+    public void testLoadRegionHeader() {
+        String txtfile = "short.hdr.txt";
+        try {
+            Files.write(Paths.get(txtfile),
+                    "#RGB 2 4\n(1, 2, 3)\t(4, 5, 6)\n(7, 8, 9)\t(1, 2, 3)\n"
+                    .getBytes("US-ASCII"));
+            testError(txtfile, "header", 0, 2);
+            // the file ends inside the region
+            testErrorRegion(txtfile, 0, 1, 2, 3, "header", 0, 2);
+            // the file ends above the region
+            testErrorRegion(txtfile, 1, 3, 1, 1, "header", 0, 2);
+
+            // the last line has no newline
+            Files.write(Paths.get(txtfile),
+                    "#RGB 1 3\n(1, 2, 3)\n(4, 5, 6)".getBytes("US-ASCII"));
+            testError(txtfile, "header", 0, 2);
+            testErrorRegion(txtfile, 0, 2, 1, 1, "header", 0, 2);
+
+            // a region outside the size in the header is still an error
+            RGBFileFormat.loadRegion(txtfile, 0, 2, 1, 2);
+            fail("IllegalArgumentException not thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("region is outside the picture", e.getMessage());
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            new File(txtfile).delete();
+        }
+    }
+
+    /**
+     * Tests a region of a file that should throw RGBException.
+     * 
+     * @param rgbfile path to the rgb/txt file
+     * @param x column of the left edge of the region
+     * @param y row of the top edge of the region
+     * @param width width of the region
+     * @param height height of the region
+     * @param msg expected message of the RGBException
+     * @param errx expected col index of the RGBException
+     * @param erry expected row index of the RGBException
+     */
+    private void testErrorRegion(String rgbfile, int x, int y, int width,
+            int height, String msg, int errx, int erry) {
+        String expect = String.format("%s (x=%d, y=%d)", msg, errx, erry);
+        try {
+            RGBFileFormat.loadRegion(rgbfile, x, y, width, height);
+            fail("RGBException not thrown: " + expect);
+        } catch (FileNotFoundException e) {
+            fail(e);
+        } catch (RGBException e) {
+            assertEquals(expect, e.getMessage(), rgbfile + " region");
+        }
+    }
+
+    /**
+     * Tests saving with a header line and row index, and loading, probing
+     * and checking the header.
+     */
+    @Test
+    public void testHeader() {
+        String txtfile = "6x5.hdr.txt";
+        try {
+            Picture expect = new Picture("6x5.png");
+            RGBFileFormat.saveWithHeader(txtfile, expect, true);
+            comparePictures(expect, RGBFileFormat.load(txtfile), txtfile);
+            comparePictures(expect, RGBFileFormat.loadParallel(txtfile, 2),
+                    txtfile + " parallel");
+            assertEquals("6x5", RGBFileFormat.probe(txtfile).toString()
+                    .split(" ")[0]);
+
+            byte[] text = "#RGB 1 2\n(1, 2, 3)\n".getBytes("US-ASCII");
+            RGBFileFormat.load(new ByteArrayInputStream(text));
+            fail("RGBException not thrown: header");
+        } catch (RGBException e) {
+            assertEquals("header (x=0, y=1)", e.getMessage());
+        } catch (IOException e) {
+            fail(e);
+        } finally {
+            new File(txtfile).delete();
+            new File(txtfile + ".idx").delete();
+        }
+    }
+
     /**
      * Compares two files, line by line. If the file contents don't match,
      * displays an error with the line number of the first difference.
@@ -0,0 +1,349 @@
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Opens RGB text files that may be gzip compressed. A file is read as gzip
+ * if it starts with the gzip magic bytes, whatever its name, and written as
+ * gzip if its name ends with ".gz".
+ * <p>
+ * Reading decompresses on a separate thread, a block ahead of the parser.
+ * Writing compresses blocks of 1 MB on several threads at once, each as its
+ * own gzip member, as pigz does; gzip and GZIPInputStream read the members
+ * back as one stream.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+class RGBGzip {
+
+    private static final int READ_BLOCK = 1 << 18;
+    private static final int WRITE_BLOCK = 1 << 20;
+    private static final int QUEUE_DEPTH = 4;
+    private static final byte[] HEADER = {0x1F, (byte) 0x8B,
+        Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xFF};
+
+    /**
+     * Private constructor; this class only has static methods.
+     */
+    private RGBGzip() {
+    }
+
+    /**
+     * Check if a file starts with the gzip magic bytes, without moving its
+     * position.
+     *
+     * @param channel the file
+     * @return true if the file is gzip compressed
+     * @throws IOException if the file cannot be read
+     */
+    static boolean isGzip(FileChannel channel) throws IOException {
+        ByteBuffer magic = ByteBuffer.allocate(2);
+        int n;
+        do {
+            n = channel.read(magic, magic.position());
+        } while (n > 0 && magic.hasRemaining());
+        return magic.position() == 2 && magic.get(0) == HEADER[0]
+                && magic.get(1) == HEADER[1];
+    }
+
+    /**
+     * Opens a file for reading, decompressing it if it is gzip compressed.
+     *
+     * @param path the path to the file
+     * @return the uncompressed contents
+     * @throws FileNotFoundException if path is not found
+     * @throws IOException if the file cannot be read
+     */
+    static ReadableByteChannel open(String path) throws IOException {
+        FileInputStream in = new FileInputStream(path);
+        try {
+            return isGzip(in.getChannel()) ? new Reader(in) : in.getChannel();
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a file for writing, compressing it if its name ends with
+     * ".gz".
+     *
+     * @param path the path to the file
+     * @return where to write the uncompressed contents
+     * @throws FileNotFoundException if path is not found
+     */
+    static WritableByteChannel create(String path)
+            throws FileNotFoundException {
+        FileChannel channel = new FileOutputStream(path).getChannel();
+        return path.endsWith(".gz") ? new Writer(channel) : channel;
+    }
+
+    /**
+     * Decompresses a gzip file on its own thread into a bounded queue of
+     * blocks.
+     */
+    private static final class Reader implements ReadableByteChannel {
+
+        private static final byte[] END = new byte[0];
+
+        private final InputStream in;
+        private final BlockingQueue<byte[]> queue =
+                new ArrayBlockingQueue<>(QUEUE_DEPTH);
+        private final Thread thread;
+        private volatile IOException error;
+        private ByteBuffer block = ByteBuffer.allocate(0);
+        private boolean done;
+        private boolean open = true;
+
+        /**
+         * Start decompressing a file.
+         *
+         * @param file the compressed file
+         * @throws IOException if the file is not valid gzip
+         */
+        private Reader(InputStream file) throws IOException {
+            in = new GZIPInputStream(file, READ_BLOCK);
+            thread = new Thread(this::inflate, "RGBGzip reader");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /**
+         * Read the whole file into the queue, then add END.
+         */
+        private void inflate() {
+            try {
+                while (true) {
+                    byte[] bytes = new byte[READ_BLOCK];
+                    int n = in.readNBytes(bytes, 0, bytes.length);
+                    if (n == 0) {
+                        break;
+                    }
+                    queue.put(n == bytes.length ? bytes
+                            : Arrays.copyOf(bytes, n));
+                }
+            } catch (IOException e) {
+                error = e;
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                queue.put(END);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+            while (!block.hasRemaining()) {
+                if (done) {
+                    return -1;
+                }
+                byte[] bytes;
+                try {
+                    bytes = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+                if (bytes == END) {
+                    done = true;
+                    if (error != null) {
+                        throw error;
+                    }
+                    return -1;
+                }
+                block = ByteBuffer.wrap(bytes);
+            }
+            int n = Math.min(dst.remaining(), block.remaining());
+            dst.put(block.array(), block.position(), n);
+            block.position(block.position() + n);
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        /**
+         * Stop decompressing and close the file.
+         *
+         * @throws IOException if the file cannot be closed
+         */
+        @Override
+        public void close() throws IOException {
+            if (!open) {
+                return;
+            }
+            open = false;
+            thread.interrupt();
+            boolean interrupted = false;
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            in.close();
+        }
+    }
+
+    /**
+     * Compresses blocks on the common pool and writes them to the file in
+     * order, as independent gzip members.
+     */
+    private static final class Writer implements WritableByteChannel {
+
+        private final FileChannel channel;
+        private final ArrayDeque<CompletableFuture<ByteBuffer>> pending =
+                new ArrayDeque<>();
+        private final int maxPending =
+                2 * Runtime.getRuntime().availableProcessors();
+        private byte[] block = new byte[WRITE_BLOCK];
+        private int length;
+        private int members;
+        private boolean open = true;
+
+        /**
+         * Start writing a compressed file.
+         *
+         * @param channel the compressed file
+         */
+        private Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+            int count = src.remaining();
+            while (src.hasRemaining()) {
+                int n = Math.min(src.remaining(), block.length - length);
+                src.get(block, length, n);
+                length += n;
+                if (length == block.length) {
+                    submit();
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Start compressing the current block, first writing the oldest
+         * compressed blocks if too many are waiting.
+         *
+         * @throws IOException if the file cannot be written
+         */
+        private void submit() throws IOException {
+            byte[] data = block;
+            int len = length;
+            pending.add(CompletableFuture.supplyAsync(() -> member(data, len)));
+            members++;
+            block = new byte[WRITE_BLOCK];
+            length = 0;
+            while (pending.size() > maxPending) {
+                writeNext();
+            }
+        }
+
+        /**
+         * Wait for the oldest block to be compressed and write it.
+         *
+         * @throws IOException if the file cannot be written
+         */
+        private void writeNext() throws IOException {
+            ByteBuffer buf = pending.remove().join();
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        /**
+         * Compress and write the rest of the file, then close it.
+         *
+         * @throws IOException if the file cannot be written
+         */
+        @Override
+        public void close() throws IOException {
+            if (!open) {
+                return;
+            }
+            open = false;
+            try {
+                if (length > 0 || members == 0) {
+                    submit();
+                }
+                while (!pending.isEmpty()) {
+                    writeNext();
+                }
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Compress bytes into one complete gzip member.
+     *
+     * @param data the bytes
+     * @param len the number of bytes
+     * @return the gzip member
+     */
+    private static ByteBuffer member(byte[] data, int len) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(data, 0, len);
+        deflater.finish();
+        byte[] out = new byte[HEADER.length + len / 2 + 64];
+        System.arraycopy(HEADER, 0, out, 0, HEADER.length);
+        int pos = HEADER.length;
+        while (!deflater.finished()) {
+            if (pos == out.length) {
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+            pos += deflater.deflate(out, pos, out.length - pos);
+        }
+        deflater.end();
+
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, len);
+        ByteBuffer buf = ByteBuffer.allocate(pos + 8)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buf.put(out, 0, pos).putInt((int) crc.getValue()).putInt(len).flip();
+        return buf;
+    }
+
+}
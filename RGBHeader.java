@@ -0,0 +1,99 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The optional first line of an RGB file, "#RGB width height", which gives
+ * the dimensions of the picture before any pixel is read. A file without it
+ * is read exactly as before; a file with it is checked to have that many rows
+ * of that many pixels, and the rows are numbered from the line after it.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+class RGBHeader {
+
+    /**
+     * The longest header line, including the line separator.
+     */
+    static final int MAX_LENGTH = 32;
+
+    private static final String MAGIC = "#RGB ";
+
+    /**
+     * Private constructor; this class only has static methods.
+     */
+    private RGBHeader() {
+    }
+
+    /**
+     * Format a header line.
+     *
+     * @param width the width of the picture
+     * @param height the height of the picture
+     * @return the line, ending with the platform line separator
+     */
+    static byte[] format(int width, int height) {
+        return (MAGIC + width + " " + height + System.lineSeparator())
+                .getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Parse a header line.
+     *
+     * @param line the line, without its '\n'
+     * @param len the length of the line
+     * @return the width and height, or null if the line is not a valid
+     *         header
+     */
+    static int[] parse(byte[] line, int len) {
+        if (len > 0 && line[len - 1] == '\r') {
+            len--;
+        }
+        String text = new String(line, 0, len, StandardCharsets.US_ASCII);
+        if (!text.startsWith(MAGIC)) {
+            return null;
+        }
+        String[] fields = text.substring(MAGIC.length()).split(" ", -1);
+        if (fields.length != 2) {
+            return null;
+        }
+        int[] size = new int[2];
+        for (int i = 0; i < 2; i++) {
+            if (fields[i].isEmpty() || fields[i].length() > 10
+                    || !fields[i].chars().allMatch(Character::isDigit)) {
+                return null;
+            }
+            long value = Long.parseLong(fields[i]);
+            if (value < 1 || value > Integer.MAX_VALUE) {
+                return null;
+            }
+            size[i] = (int) value;
+        }
+        return size;
+    }
+
+    /**
+     * Read the header line at the start of a file, if there is one.
+     *
+     * @param channel the file
+     * @return the width, height and length of the header line including its
+     *         '\n', or null if the file does not start with a valid header
+     * @throws IOException if the file cannot be read
+     */
+    static int[] read(FileChannel channel) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(MAX_LENGTH);
+        int n;
+        do {
+            n = channel.read(buf, buf.position());
+        } while (n > 0 && buf.hasRemaining());
+        if (buf.position() == 0 || buf.get(0) != '#') {
+            return null;
+        }
+        int end = RGBScan.indexOf(buf, 0, buf.position(), (byte) '\n');
+        int[] size = end < 0 ? null : parse(buf.array(), end);
+        return size == null ? null : new int[] {size[0], size[1], end + 1};
+    }
+
+}
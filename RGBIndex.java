@@ -0,0 +1,165 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * The optional sidecar of an RGB file, named by adding ".idx" to its path,
+ * which holds the byte offset of every row so that readers can jump straight
+ * to any row. It is written by
+ * {@link RGBFileFormat#saveWithHeader(String, Picture, boolean)} and ignored
+ * if the RGB file has changed since. All numbers are little-endian.
+ * <pre>
+ *  0  magic "RGBI"
+ *  4  width
+ *  8  height
+ * 12  size of the RGB file
+ * 20  last-modified time of the RGB file, in milliseconds
+ * 28  offset of each row, then the offset of the end of the last row
+ * </pre>
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+class RGBIndex {
+
+    private static final byte[] MAGIC = {'R', 'G', 'B', 'I'};
+    private static final int HEADER_SIZE = 28;
+
+    private final int width;
+    private final long[] offsets;
+
+    /**
+     * Create an index.
+     *
+     * @param width the width of the picture
+     * @param offsets the offset of each row, then of the end of the last
+     */
+    private RGBIndex(int width, long[] offsets) {
+        this.width = width;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Get the width of the picture.
+     *
+     * @return the width
+     */
+    int width() {
+        return width;
+    }
+
+    /**
+     * Get the height of the picture.
+     *
+     * @return the height
+     */
+    int height() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Get the offset in the RGB file where a row starts.
+     *
+     * @param y the row index, or the height for the end of the last row
+     * @return the offset
+     */
+    long offset(int y) {
+        return offsets[y];
+    }
+
+    /**
+     * Get the path of the sidecar for an RGB file.
+     *
+     * @param path the path to the RGB file
+     * @return the path to its index
+     */
+    static Path path(String path) {
+        return Paths.get(path + ".idx");
+    }
+
+    /**
+     * Write the sidecar for an RGB file that has just been saved.
+     *
+     * @param path the path to the RGB file
+     * @param width the width of the picture
+     * @param offsets the offset of each row, then of the end of the last
+     * @throws IOException if the index cannot be written
+     */
+    static void write(String path, int width, long[] offsets)
+            throws IOException {
+        File file = new File(path);
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE
+                + offsets.length * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buf.put(MAGIC).putInt(width).putInt(offsets.length - 1);
+        buf.putLong(file.length()).putLong(file.lastModified());
+        buf.asLongBuffer().put(offsets);
+        buf.clear();
+        try (FileChannel channel =
+                new FileOutputStream(path(path).toFile()).getChannel()) {
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+        }
+    }
+
+    /**
+     * Read the sidecar of an RGB file.
+     *
+     * @param path the path to the RGB file
+     * @return the index, or null if there is none or it is out of date
+     */
+    static RGBIndex read(String path) {
+        File file = new File(path);
+        Path idx = path(path);
+        if (!Files.isRegularFile(idx)) {
+            return null;
+        }
+        try (FileChannel channel = new FileInputStream(idx.toFile())
+                .getChannel()) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + Long.BYTES
+                    || (size - HEADER_SIZE) % Long.BYTES != 0) {
+                return null;
+            }
+            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    size).order(ByteOrder.LITTLE_ENDIAN);
+            byte[] magic = new byte[MAGIC.length];
+            buf.get(magic);
+            int width = buf.getInt();
+            int height = buf.getInt();
+            if (!Arrays.equals(magic, MAGIC) || width <= 0
+                    || height != (size - HEADER_SIZE) / Long.BYTES - 1
+                    || buf.getLong() != file.length()
+                    || buf.getLong() != file.lastModified()) {
+                return null;
+            }
+            long[] offsets = new long[height + 1];
+            LongBuffer longs = buf.asLongBuffer();
+            longs.get(offsets);
+            for (int y = 0; y < height; y++) {
+                if (offsets[y] < 0 || offsets[y] >= offsets[y + 1]) {
+                    return null;
+                }
+            }
+            if (offsets[height] > file.length()) {
+                return null;
+            }
+            return new RGBIndex(width, offsets);
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+}
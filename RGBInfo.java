@@ -0,0 +1,61 @@
+/**
+ * The dimensions of an RGB file, as found by
+ * {@link RGBFileFormat#probe(String)} without parsing its pixels.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+public class RGBInfo {
+
+    private final int width;
+    private final int height;
+    private final long size;
+
+    /**
+     * Creates the dimensions of a file.
+     *
+     * @param width the number of pixels in the first row
+     * @param height the number of rows
+     * @param size the size of the file in bytes
+     */
+    RGBInfo(int width, int height, long size) {
+        this.width = width;
+        this.height = height;
+        this.size = size;
+    }
+
+    /**
+     * Returns the width of the picture, from the first row of the file.
+     *
+     * @return the width, or 0 for an empty file
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the picture, from the number of lines in the
+     * file.
+     *
+     * @return the height, or 0 for an empty file
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Returns the size of the file as stored, which is its compressed size
+     * if it is gzip compressed.
+     *
+     * @return the size in bytes
+     */
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return width + "x" + height + " (" + size + " bytes)";
+    }
+
+}
@@ -0,0 +1,256 @@
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Opt-in metrics for loading and saving RGB text: the time spent in each
+ * phase, the bytes and pixels handled, and the errors thrown. The phases are
+ * <ul>
+ * <li>scan: finding the dimensions of a file without parsing it, as done by
+ * probe() and before a parallel parse</li>
+ * <li>parse: reading and checking the text</li>
+ * <li>build: creating the picture from the parsed rows</li>
+ * <li>save: writing the text</li>
+ * </ul>
+ * Metrics are off by default and cost one volatile read per phase while
+ * off. They are turned on by {@link #setEnabled(boolean)} or by starting the
+ * JVM with -Drgb.metrics=true, which also registers them with the platform
+ * MBean server; each run of a phase is then also a {@link RGBEvent} for the
+ * Flight Recorder. This class is thread-safe.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+public class RGBMetrics implements RGBMetricsMXBean {
+
+    static final int SCAN = 0;
+    static final int PARSE = 1;
+    static final int BUILD = 2;
+    static final int SAVE = 3;
+
+    private static final String[] PHASES = {"scan", "parse", "build", "save"};
+    private static final String NAME = "RGBFileFormat:type=Metrics";
+    private static final RGBMetrics INSTANCE = new RGBMetrics();
+
+    private volatile boolean enabled;
+    private boolean registered;
+    private final LongAdder[] counts = adders();
+    private final LongAdder[] nanos = adders();
+    private final LongAdder[] bytes = adders();
+    private final LongAdder[] pixels = adders();
+    private final LongAccumulator[] maxNanos =
+            new LongAccumulator[PHASES.length];
+    private final ConcurrentHashMap<String, LongAdder> errors =
+            new ConcurrentHashMap<>();
+
+    static {
+        if (Boolean.getBoolean("rgb.metrics")) {
+            INSTANCE.setEnabled(true);
+        }
+    }
+
+    /**
+     * Creates the metrics; there is only one instance.
+     */
+    private RGBMetrics() {
+        for (int i = 0; i < PHASES.length; i++) {
+            maxNanos[i] = new LongAccumulator(Math::max, 0);
+        }
+    }
+
+    /**
+     * Returns the metrics of this JVM.
+     *
+     * @return the metrics
+     */
+    public static RGBMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Start timing a phase.
+     *
+     * @param phase SCAN, PARSE, BUILD or SAVE
+     * @return the event to pass to end(), or null if metrics are off
+     */
+    static RGBEvent begin(int phase) {
+        if (!INSTANCE.enabled) {
+            return null;
+        }
+        RGBEvent event = new RGBEvent();
+        event.index = phase;
+        event.phase = PHASES[phase];
+        event.begin();
+        event.start = System.nanoTime();
+        return event;
+    }
+
+    /**
+     * Finish timing a phase.
+     *
+     * @param event the result of begin(), which may be null
+     * @param bytes number of bytes read or written
+     * @param pixels number of pixels loaded or saved
+     */
+    static void end(RGBEvent event, long bytes, long pixels) {
+        if (event == null) {
+            return;
+        }
+        long time = System.nanoTime() - event.start;
+        int phase = event.index;
+        RGBMetrics metrics = INSTANCE;
+        metrics.counts[phase].increment();
+        metrics.nanos[phase].add(time);
+        metrics.maxNanos[phase].accumulate(time);
+        metrics.bytes[phase].add(bytes);
+        metrics.pixels[phase].add(pixels);
+        event.end();
+        if (event.shouldCommit()) {
+            event.bytes = bytes;
+            event.pixels = pixels;
+            event.commit();
+        }
+    }
+
+    /**
+     * Count an error that is about to be thrown.
+     *
+     * @param message the message of the RGBException
+     */
+    static void error(String message) {
+        if (INSTANCE.enabled) {
+            INSTANCE.errors.computeIfAbsent(message, m -> new LongAdder())
+                    .increment();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public synchronized void setEnabled(boolean enabled) {
+        if (enabled && !registered) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            try {
+                server.registerMBean(this, new ObjectName(NAME));
+            } catch (JMException e) {
+                // metrics still work without JMX
+            }
+            registered = true;
+        }
+        this.enabled = enabled;
+    }
+
+    @Override
+    public Map<String, Long> getCounts() {
+        return byPhase(counts);
+    }
+
+    @Override
+    public Map<String, Long> getNanos() {
+        return byPhase(nanos);
+    }
+
+    @Override
+    public Map<String, Long> getMaxNanos() {
+        Map<String, Long> map = new TreeMap<>();
+        for (int i = 0; i < PHASES.length; i++) {
+            map.put(PHASES[i], maxNanos[i].get());
+        }
+        return map;
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytes[SCAN].sum() + bytes[PARSE].sum();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytes[SAVE].sum();
+    }
+
+    @Override
+    public long getPixelsLoaded() {
+        return pixels[PARSE].sum() + pixels[BUILD].sum();
+    }
+
+    @Override
+    public long getPixelsSaved() {
+        return pixels[SAVE].sum();
+    }
+
+    @Override
+    public Map<String, Long> getErrors() {
+        Map<String, Long> map = new TreeMap<>();
+        errors.forEach((message, count) -> map.put(message, count.sum()));
+        return map;
+    }
+
+    @Override
+    public String getSummary() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < PHASES.length; i++) {
+            text.append(String.format("%-6s %6d runs %10.1f ms (max %.1f ms)"
+                    + " %14d bytes %12d pixels%n", PHASES[i], counts[i].sum(),
+                    nanos[i].sum() / 1e6, maxNanos[i].get() / 1e6,
+                    bytes[i].sum(), pixels[i].sum()));
+        }
+        Map<String, Long> errors = getErrors();
+        text.append("errors");
+        if (errors.isEmpty()) {
+            text.append(" none");
+        }
+        errors.forEach((message, count) ->
+                text.append(" ").append(message).append(": ").append(count));
+        return text.append(System.lineSeparator()).toString();
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < PHASES.length; i++) {
+            counts[i].reset();
+            nanos[i].reset();
+            maxNanos[i].reset();
+            bytes[i].reset();
+            pixels[i].reset();
+        }
+        errors.clear();
+    }
+
+    /**
+     * Create one counter per phase.
+     *
+     * @return the counters
+     */
+    private static LongAdder[] adders() {
+        LongAdder[] adders = new LongAdder[PHASES.length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Get the totals of some counters by phase name.
+     *
+     * @param adders one counter per phase
+     * @return the totals
+     */
+    private static Map<String, Long> byPhase(LongAdder[] adders) {
+        Map<String, Long> map = new TreeMap<>();
+        for (int i = 0; i < PHASES.length; i++) {
+            map.put(PHASES[i], adders[i].sum());
+        }
+        return map;
+    }
+
+}
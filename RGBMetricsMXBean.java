@@ -0,0 +1,97 @@
+import java.util.Map;
+
+/**
+ * Management interface of {@link RGBMetrics}, registered with the platform
+ * MBean server as "RGBFileFormat:type=Metrics" so that tools such as
+ * JConsole can read it. Every map is keyed by phase name, or by error
+ * message for {@link #getErrors()}.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+public interface RGBMetricsMXBean {
+
+    /**
+     * Returns whether metrics are being recorded.
+     *
+     * @return true if enabled
+     */
+    boolean isEnabled();
+
+    /**
+     * Starts or stops recording metrics. The totals so far are kept.
+     *
+     * @param enabled true to record metrics
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Returns the number of times each phase has run.
+     *
+     * @return count by phase
+     */
+    Map<String, Long> getCounts();
+
+    /**
+     * Returns the total time spent in each phase.
+     *
+     * @return nanoseconds by phase
+     */
+    Map<String, Long> getNanos();
+
+    /**
+     * Returns the longest single run of each phase.
+     *
+     * @return nanoseconds by phase
+     */
+    Map<String, Long> getMaxNanos();
+
+    /**
+     * Returns the number of bytes of RGB text read.
+     *
+     * @return the number of bytes
+     */
+    long getBytesRead();
+
+    /**
+     * Returns the number of bytes of RGB text written.
+     *
+     * @return the number of bytes
+     */
+    long getBytesWritten();
+
+    /**
+     * Returns the number of pixels in pictures loaded without errors.
+     *
+     * @return the number of pixels
+     */
+    long getPixelsLoaded();
+
+    /**
+     * Returns the number of pixels saved.
+     *
+     * @return the number of pixels
+     */
+    long getPixelsSaved();
+
+    /**
+     * Returns the number of parses of RGB text that failed, by the message of
+     * their RGBException.
+     *
+     * @return count by message
+     */
+    Map<String, Long> getErrors();
+
+    /**
+     * Returns a summary of the metrics, one line per phase.
+     *
+     * @return the summary
+     */
+    String getSummary();
+
+    /**
+     * Sets every total back to zero.
+     */
+    void reset();
+
+}
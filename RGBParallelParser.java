@@ -0,0 +1,374 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Parser for RGB files that splits the file into chunks of whole rows and
+ * parses them on a thread pool. The rows of each chunk are counted first, so
+ * every chunk knows where its rows go in the picture. If the file has a
+ * header line and an up to date {@link RGBIndex}, the chunks are taken from
+ * the index instead and nothing needs to be counted.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+class RGBParallelParser {
+
+    private static final long MIN_CHUNK = 1 << 20;
+    private static final long MAX_CHUNK = 1L << 28;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final FileChannel channel;
+    private final long[] starts;
+    private int width;
+    private int[] firstRows;
+    private int[] pixels;
+    private boolean indexed;
+    private volatile boolean stale;
+
+    /**
+     * Create a parser for the given chunks of a file.
+     *
+     * @param channel the file
+     * @param starts offset of each chunk, followed by the file size
+     */
+    private RGBParallelParser(FileChannel channel, long[] starts) {
+        this.channel = channel;
+        this.starts = starts;
+    }
+
+    /**
+     * Parse an RGB file into a picture. A gzip compressed file cannot be
+     * split into chunks, so it is read as by RGBParser.
+     *
+     * @param path path to file
+     * @param parallelism number of threads
+     * @return the corresponding picture
+     * @throws FileNotFoundException if path is not found
+     * @throws RGBException if file format is incorrect
+     */
+    static Picture parse(String path, int parallelism)
+            throws FileNotFoundException, RGBException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (FileChannel channel = file.getChannel()) {
+            if (RGBGzip.isGzip(channel)) {
+                return RGBParser.parse(path);
+            }
+            long size = channel.size();
+            if (size == 0) {
+                RGBErrors errors = new RGBErrors();
+                errors.record(RGBErrors.EMPTY, 0, 0);
+                errors.check();
+            }
+            int[] header = RGBHeader.read(channel);
+            if (header != null) {
+                RGBParallelParser parser = indexed(channel, header,
+                        RGBIndex.read(path), parallelism);
+                Picture picture = parser == null ? null
+                        : parser.parseRows(pool);
+                if (picture != null) {
+                    return picture;
+                }
+            }
+            long first = header == null ? 0 : header[2];
+            RGBParallelParser parser = new RGBParallelParser(channel,
+                    split(channel, parallelism, first));
+            parser.countRows(pool);
+            if (header != null && (header[0] != parser.width
+                    || header[1] != parser.height())) {
+                // the file is not valid, so find its error as load() does
+                return RGBParser.parse(path);
+            }
+            return parser.parseRows(pool);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Create a parser whose chunks start at rows found in the index of the
+     * file, if the index matches the header.
+     *
+     * @param channel the file
+     * @param header width, height and length of the header line
+     * @param index the index, or null if there is none
+     * @param parallelism number of threads
+     * @return the parser, or null if the index cannot be used
+     * @throws IOException if the file cannot be read
+     */
+    private static RGBParallelParser indexed(FileChannel channel,
+            int[] header, RGBIndex index, int parallelism)
+            throws IOException {
+        if (index == null || index.width() != header[0]
+                || index.height() != header[1]
+                || index.offset(0) != header[2]) {
+            return null;
+        }
+        long size = channel.size();
+        int height = index.height();
+        long chunks = Math.min((long) parallelism * CHUNKS_PER_THREAD,
+                size / MIN_CHUNK);
+        chunks = Math.max(chunks, (size + MAX_CHUNK - 1) / MAX_CHUNK);
+        chunks = Math.max(Math.min(chunks, height), 1);
+
+        long[] starts = new long[(int) chunks + 1];
+        int[] firstRows = new int[(int) chunks + 1];
+        for (int i = 0; i < chunks; i++) {
+            firstRows[i] = (int) (height * i / chunks);
+            starts[i] = index.offset(firstRows[i]);
+        }
+        starts[(int) chunks] = size;
+        firstRows[(int) chunks] = height;
+        for (int i = 0; i < chunks; i++) {
+            if (starts[i + 1] - starts[i] > MAX_CHUNK) {
+                return null;
+            }
+        }
+
+        RGBParallelParser parser = new RGBParallelParser(channel, starts);
+        parser.width = index.width();
+        parser.firstRows = firstRows;
+        parser.indexed = true;
+        return parser;
+    }
+
+    /**
+     * Choose where each chunk starts. Every chunk but the first starts just
+     * after a newline.
+     *
+     * @param channel the file
+     * @param parallelism number of threads
+     * @param first offset of the first row, after any header line
+     * @return offset of each chunk, followed by the file size
+     * @throws IOException if the file cannot be read
+     */
+    private static long[] split(FileChannel channel, int parallelism,
+            long first) throws IOException {
+        long size = channel.size();
+        long chunks = Math.min((long) parallelism * CHUNKS_PER_THREAD,
+                size / MIN_CHUNK);
+        chunks = Math.max(chunks, (size + MAX_CHUNK - 1) / MAX_CHUNK);
+        chunks = Math.max(chunks, 1);
+
+        List<Long> starts = new ArrayList<>();
+        starts.add(first);
+        ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+        for (long i = 1; i < chunks; i++) {
+            long pos = Math.max(size * i / chunks,
+                    starts.get(starts.size() - 1));
+            long start = nextLine(channel, pos, buf);
+            if (start < size && start > starts.get(starts.size() - 1)) {
+                starts.add(start);
+            }
+        }
+        starts.add(size);
+
+        long[] result = new long[starts.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = starts.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Find the start of the first line that begins after a position.
+     *
+     * @param channel the file
+     * @param pos position to search from
+     * @param buf buffer for reading
+     * @return offset just after the next newline, or the file size
+     * @throws IOException if the file cannot be read
+     */
+    private static long nextLine(FileChannel channel, long pos,
+            ByteBuffer buf) throws IOException {
+        buf.clear();
+        int n = channel.read(buf, pos);
+        while (n > 0) {
+            for (int i = 0; i < n; i++) {
+                if (buf.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += n;
+            buf.clear();
+            n = channel.read(buf, pos);
+        }
+        return channel.size();
+    }
+
+    /**
+     * Map one chunk of the file into memory.
+     *
+     * @param chunk index of the chunk
+     * @return the chunk's bytes
+     * @throws IOException if the file cannot be read
+     */
+    private ByteBuffer map(int chunk) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, starts[chunk],
+                starts[chunk + 1] - starts[chunk]);
+    }
+
+    /**
+     * Count the rows in each chunk to find the row where each one starts, and
+     * count the pixels in the first row to find the width.
+     *
+     * @param pool the thread pool
+     */
+    private void countRows(ForkJoinPool pool) {
+        RGBEvent event = RGBMetrics.begin(RGBMetrics.SCAN);
+        int chunks = starts.length - 1;
+        List<Callable<int[]>> tasks = new ArrayList<>();
+        for (int i = 0; i < chunks; i++) {
+            int chunk = i;
+            tasks.add(() -> {
+                ByteBuffer buf = map(chunk);
+                int end = buf.limit();
+                int rows = RGBScan.count(buf, 0, end, (byte) '\n');
+                int tabs = 0;
+                if (chunk == 0) {
+                    int first = RGBScan.indexOf(buf, 0, end, (byte) '\n');
+                    tabs = RGBScan.count(buf, 0, first < 0 ? end : first,
+                            (byte) '\t');
+                }
+                if (chunk == chunks - 1 && end > 0
+                        && buf.get(end - 1) != '\n') {
+                    rows++;
+                }
+                return new int[] {rows, tabs};
+            });
+        }
+        List<int[]> counts = invokeAll(pool, tasks);
+
+        firstRows = new int[chunks + 1];
+        for (int i = 0; i < chunks; i++) {
+            firstRows[i + 1] = firstRows[i] + counts.get(i)[0];
+        }
+        width = counts.get(0)[1] + 1;
+        RGBMetrics.end(event, starts[chunks] - starts[0], 0);
+    }
+
+    /**
+     * Get the number of rows found by countRows().
+     *
+     * @return the height of the picture
+     */
+    private int height() {
+        return firstRows[firstRows.length - 1];
+    }
+
+    /**
+     * Parse every chunk, timing it as the parse phase of {@link RGBMetrics}.
+     *
+     * @param pool the thread pool
+     * @return the parsed picture, or null if the chunks were taken from an
+     *         index that turned out not to match the file
+     * @throws RGBException if file format is incorrect
+     */
+    private Picture parseRows(ForkJoinPool pool) throws RGBException {
+        RGBEvent event = RGBMetrics.begin(RGBMetrics.PARSE);
+        Picture picture = null;
+        try {
+            picture = parseChunks(pool);
+            return picture;
+        } finally {
+            RGBMetrics.end(event, starts[starts.length - 1] - starts[0],
+                    picture == null ? 0
+                    : (long) picture.width() * picture.height());
+        }
+    }
+
+    /**
+     * Parse every chunk straight into the pixels of the picture.
+     *
+     * @param pool the thread pool
+     * @return the parsed picture, or null if the chunks were taken from an
+     *         index that turned out not to match the file
+     * @throws RGBException if file format is incorrect
+     */
+    private Picture parseChunks(ForkJoinPool pool) throws RGBException {
+        int chunks = starts.length - 1;
+        int height = firstRows[chunks];
+        if ((long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("picture is too large");
+        }
+        Picture picture = new Picture(width, height);
+        pixels = picture.getRGBData();
+
+        List<Callable<RGBErrors>> tasks = new ArrayList<>();
+        for (int i = 0; i < chunks; i++) {
+            int chunk = i;
+            tasks.add(() -> {
+                RGBErrors errors = new RGBErrors();
+                RGBTokenizer tokenizer = new RGBTokenizer((y, row, n) -> {
+                    if (y < height) {
+                        System.arraycopy(row, 0, pixels, y * width, width);
+                    }
+                }, errors, firstRows[chunk], width);
+                tokenizer.feed(map(chunk));
+                tokenizer.flush();
+                if (indexed && !tokenizer.isStopped()
+                        && tokenizer.height() != firstRows[chunk + 1]) {
+                    stale = true;
+                }
+                return errors;
+            });
+        }
+        // merge in file order, so each kind of error keeps its first location
+        RGBErrors errors = new RGBErrors();
+        for (RGBErrors chunkErrors : invokeAll(pool, tasks)) {
+            errors.merge(chunkErrors);
+        }
+        if (stale) {
+            return null;
+        }
+        errors.check();
+        return picture;
+    }
+
+    /**
+     * Run tasks on the pool and wait for all of their results.
+     *
+     * @param <T> type of result
+     * @param pool the thread pool
+     * @param tasks the tasks
+     * @return the result of each task, in order
+     */
+    private static <T> List<T> invokeAll(ForkJoinPool pool,
+            List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<>();
+        try {
+            for (Future<T> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw new UncheckedIOException((IOException) cause);
+            }
+            throw new IllegalStateException(cause);
+        }
+        return results;
+    }
+
+}
@@ -0,0 +1,396 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Single-pass parser for RGB files. The file is read once through an
+ * {@link RGBTokenizer}, and the pixels of each row are kept until the end of
+ * the file, when the picture is created. If the file has a header line, the
+ * picture is created from it up front and the rows are parsed straight into
+ * it. In compact mode, each pixel is kept as three bytes and the picture
+ * is created around them without a copy.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+class RGBParser implements RGBTokenizer.RowSink {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long WINDOW_SIZE = 1L << 28;
+    private static final long MIN_PIXEL_SIZE = 8;
+    private static final long MAX_INFLATE = 1032;
+    private static final long MAX_UNCHECKED_PIXELS = 1 << 24;
+    private static final long MAX_ARRAY = Integer.MAX_VALUE - 8;
+
+    private final RGBErrors errors;
+    private final RGBTokenizer tokenizer;
+    private final boolean compact;
+    private int[] pixels;
+    private byte[] bgr;
+    private int count;
+    private long maxPixels = MAX_UNCHECKED_PIXELS;
+    private Picture picture;
+
+    /**
+     * Create a parser.
+     *
+     * @param failFast if true, stop at the first error found
+     * @param compact if true, create a compact picture
+     */
+    private RGBParser(boolean failFast, boolean compact) {
+        errors = new RGBErrors(failFast);
+        tokenizer = new RGBTokenizer(this, errors);
+        this.compact = compact;
+        if (compact) {
+            bgr = new byte[3 * 1024];
+        } else {
+            pixels = new int[1024];
+        }
+    }
+
+    /**
+     * Parse an RGB file into a picture.
+     *
+     * @param path path to file
+     * @return the corresponding picture
+     * @throws FileNotFoundException if path is not found
+     * @throws RGBException if file format is incorrect
+     */
+    static Picture parse(String path)
+            throws FileNotFoundException, RGBException {
+        return parse(path, false);
+    }
+
+    /**
+     * Parse an RGB file into a picture. The file may be gzip compressed.
+     *
+     * @param path path to file
+     * @param failFast if true, stop at the first error found
+     * @return the corresponding picture
+     * @throws FileNotFoundException if path is not found
+     * @throws RGBException if file format is incorrect
+     */
+    static Picture parse(String path, boolean failFast)
+            throws FileNotFoundException, RGBException {
+        return parse(path, new RGBParser(failFast, false));
+    }
+
+    /**
+     * Parse an RGB file into a compact picture, which stores each pixel in
+     * three bytes. The file may be gzip compressed.
+     *
+     * @param path path to file
+     * @return the corresponding picture
+     * @throws FileNotFoundException if path is not found
+     * @throws RGBException if file format is incorrect
+     */
+    static Picture parseCompact(String path)
+            throws FileNotFoundException, RGBException {
+        return parse(path, new RGBParser(false, true));
+    }
+
+    /**
+     * Open an RGB file and parse it.
+     *
+     * @param path path to file
+     * @param parser the parser
+     * @return the corresponding picture
+     * @throws FileNotFoundException if path is not found
+     * @throws RGBException if file format is incorrect
+     */
+    private static Picture parse(String path, RGBParser parser)
+            throws FileNotFoundException, RGBException {
+        ReadableByteChannel in;
+        try {
+            in = RGBGzip.open(path);
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try (ReadableByteChannel channel = in) {
+            return parser.read(channel);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parse RGB text from a channel into a picture. Reading stops at the end
+     * of the channel, or as soon as the result is known to be an error.
+     *
+     * @param channel the input, which is not closed
+     * @param failFast if true, stop at the first error found
+     * @return the corresponding picture
+     * @throws RGBException if file format is incorrect
+     */
+    static Picture parse(ReadableByteChannel channel, boolean failFast)
+            throws RGBException {
+        return new RGBParser(failFast, false).read(channel);
+    }
+
+    /**
+     * Parse RGB text from a channel up to its end, or until the result is
+     * known to be an error.
+     *
+     * @param channel the input, which is not closed
+     * @return the corresponding picture
+     * @throws RGBException if file format is incorrect
+     */
+    private Picture read(ReadableByteChannel channel) throws RGBException {
+        ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+        RGBEvent event = RGBMetrics.begin(RGBMetrics.PARSE);
+        long bytes = 0;
+        try {
+            if (channel instanceof FileChannel) {
+                FileChannel file = (FileChannel) channel;
+                limit(file.size() - file.position());
+            }
+            while (channel.read(buf) >= 0) {
+                buf.flip();
+                bytes += buf.remaining();
+                if (!tokenizer.feed(buf)) {
+                    break;
+                }
+                buf.clear();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            RGBMetrics.end(event, bytes, 0);
+        }
+        return finish();
+    }
+
+    /**
+     * Parse an RGB file into a buffer outside the heap. The dimensions are
+     * found first by {@link RGBFileFormat#probe(String)}, which reads only a
+     * header line if the file has one, so the buffer can be allocated before
+     * the pixels are parsed straight into it. Dimensions with more pixels
+     * than the file can hold, as a bad header line may give, are not
+     * allocated; the file is then parsed only to report its error.
+     *
+     * @param path path to file
+     * @return the pixels of the picture
+     * @throws FileNotFoundException if path is not found
+     * @throws RGBException if file format is incorrect
+     */
+    static PixelBuffer parsePixels(String path)
+            throws FileNotFoundException, RGBException {
+        RGBInfo info = RGBFileFormat.probe(path);
+        RGBErrors errors = new RGBErrors();
+        if (info.width() == 0) {
+            // probe found no bytes at all
+            errors.record(RGBErrors.EMPTY, 0, 0);
+            errors.check();
+        }
+        ReadableByteChannel in;
+        try {
+            in = RGBGzip.open(path);
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long size = info.size();
+        if (!(in instanceof FileChannel)) {
+            // the size is compressed; deflate shrinks text at most 1032 times
+            size *= MAX_INFLATE;
+        }
+        PixelBuffer buffer = null;
+        RGBEvent event = RGBMetrics.begin(RGBMetrics.PARSE);
+        long bytes = 0;
+        boolean done = false;
+        try (ReadableByteChannel channel = in) {
+            if ((long) info.width() * info.height()
+                    <= size / MIN_PIXEL_SIZE + 1) {
+                buffer = new PixelBuffer(info.width(), info.height());
+            }
+            PixelBuffer pixels = buffer;
+            RGBTokenizer tokenizer = new RGBTokenizer((y, row, width) -> {
+                if (pixels != null && y < pixels.height()
+                        && width == pixels.width()) {
+                    pixels.setRGBRow(y, row);
+                }
+            }, errors);
+            ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+            while (channel.read(buf) >= 0) {
+                buf.flip();
+                bytes += buf.remaining();
+                if (!tokenizer.feed(buf)) {
+                    break;
+                }
+                buf.clear();
+            }
+            tokenizer.finish();
+            if (pixels == null || tokenizer.height() != pixels.height()) {
+                throw new IllegalStateException(path + " changed while read");
+            }
+            done = true;
+            return pixels;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (!done && buffer != null) {
+                buffer.close();
+            }
+            RGBMetrics.end(event, bytes, done ? buffer.size() : 0);
+        }
+    }
+
+    /**
+     * Parse an RGB file into a picture by mapping it into memory one window
+     * at a time. A row that crosses the end of a window is finished in the
+     * next one, since the tokenizer keeps its state between calls. Each window
+     * is copied through the tokenizer's small reused array, not into one
+     * buffer the size of the file. A gzip compressed file cannot be mapped,
+     * so it is read as by parse().
+     *
+     * @param path path to file
+     * @return the corresponding picture
+     * @throws FileNotFoundException if path is not found
+     * @throws RGBException if file format is incorrect
+     */
+    static Picture parseMapped(String path)
+            throws FileNotFoundException, RGBException {
+        RGBParser parser = new RGBParser(false, false);
+        RGBEvent event = null;
+        long bytes = 0;
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try (FileChannel channel = file.getChannel()) {
+            if (RGBGzip.isGzip(channel)) {
+                return parse(path);
+            }
+            long size = channel.size();
+            parser.limit(size);
+            event = RGBMetrics.begin(RGBMetrics.PARSE);
+            for (long pos = 0; pos < size; pos += WINDOW_SIZE) {
+                long len = Math.min(WINDOW_SIZE, size - pos);
+                ByteBuffer window =
+                        channel.map(FileChannel.MapMode.READ_ONLY, pos, len);
+                bytes += len;
+                if (!parser.tokenizer.feed(window)) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            RGBMetrics.end(event, bytes, 0);
+        }
+        return parser.finish();
+    }
+
+    /**
+     * Set the number of bytes left in the input, which bounds the size of
+     * picture that a header can create before its rows are read.
+     *
+     * @param size number of bytes
+     */
+    private void limit(long size) {
+        // every pixel but the last takes at least 8 bytes, "(0,0,0)" and a
+        // tab or newline
+        maxPixels = size / MIN_PIXEL_SIZE + 1;
+    }
+
+    @Override
+    public void header(int width, int height) {
+        long size = (long) width * height;
+        if (size > maxPixels) {
+            return;
+        }
+        if (compact && size * 3 <= MAX_ARRAY) {
+            bgr = new byte[(int) size * 3];
+        } else if (!compact && size <= Integer.MAX_VALUE) {
+            picture = new Picture(width, height);
+            pixels = picture.getRGBData();
+        }
+    }
+
+    @Override
+    public void row(int y, int[] row, int width) {
+        if (compact) {
+            rowBytes(row, width);
+            return;
+        }
+        if (count + width > pixels.length) {
+            pixels = Arrays.copyOf(pixels,
+                    Math.max(pixels.length * 2, count + width));
+        }
+        System.arraycopy(row, 0, pixels, count, width);
+        count += width;
+    }
+
+    /**
+     * Keep one row as blue, green and red bytes.
+     *
+     * @param row rgb value of each pixel
+     * @param width number of pixels in the row
+     */
+    private void rowBytes(int[] row, int width) {
+        long size = 3L * (count + width);
+        if (size > bgr.length) {
+            if (size > MAX_ARRAY) {
+                throw new IllegalArgumentException("picture is too large");
+            }
+            bgr = Arrays.copyOf(bgr,
+                    (int) Math.min(MAX_ARRAY, Math.max(2L * bgr.length, size)));
+        }
+        int at = count * 3;
+        for (int i = 0; i < width; i++, at += 3) {
+            int rgb = row[i];
+            bgr[at] = (byte) rgb;
+            bgr[at + 1] = (byte) (rgb >> 8);
+            bgr[at + 2] = (byte) (rgb >> 16);
+        }
+        count += width;
+    }
+
+    /**
+     * Throw the first error found, or build the picture, timing it as the
+     * build phase of {@link RGBMetrics}.
+     *
+     * @return the parsed picture
+     * @throws RGBException if file format is incorrect
+     */
+    private Picture finish() throws RGBException {
+        RGBEvent event = RGBMetrics.begin(RGBMetrics.BUILD);
+        Picture result = null;
+        try {
+            result = build();
+            return result;
+        } finally {
+            RGBMetrics.end(event, 0, result == null ? 0
+                    : (long) result.width() * result.height());
+        }
+    }
+
+    /**
+     * Throw the first error found, or create the picture.
+     *
+     * @return the parsed picture
+     * @throws RGBException if file format is incorrect
+     */
+    private Picture build() throws RGBException {
+        tokenizer.finish();
+        if (picture != null) {
+            return picture;
+        }
+        int width = tokenizer.width();
+        int height = tokenizer.height();
+        if (compact) {
+            int size = count * 3;
+            return new Picture(width, height,
+                    bgr.length == size ? bgr : Arrays.copyOf(bgr, size));
+        }
+        Picture picture = new Picture(width, height);
+        picture.setRGBRows(0, height, pixels);
+        return picture;
+    }
+
+}
@@ -0,0 +1,363 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Parser for a rectangle of an RGB file. Rows above the rectangle are skipped
+ * by counting newlines, and the columns on either side of it by counting
+ * tabs, so only the pixels inside it are parsed and checked; rows below it
+ * are not read at all. If the file has a header line and an up to date
+ * {@link RGBIndex}, the rows above are not read either.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+class RGBRegionParser implements RGBTokenizer.RowSink {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+    private final byte[] bytes = buf.array();
+    private int pos;
+    private int limit;
+
+    private final int left;
+    private final int top;
+    private final int width;
+    private final int height;
+    private final RGBErrors errors = new RGBErrors();
+    private final RGBTokenizer tokenizer;
+    private Picture picture;
+    private int[] pixels;
+    private long imageWidth = -1;
+    private long bytesRead;
+    private boolean stopped;
+
+    /**
+     * Create a parser for a region of a file.
+     *
+     * @param channel the file
+     * @param x column of the left edge of the region
+     * @param y row of the top edge of the region
+     * @param width width of the region
+     * @param height height of the region
+     */
+    private RGBRegionParser(ReadableByteChannel channel, int x, int y,
+            int width, int height) {
+        this.channel = channel;
+        this.left = x;
+        this.top = y;
+        this.width = width;
+        this.height = height;
+        this.tokenizer = new RGBTokenizer(this, errors, y, width, x);
+    }
+
+    /**
+     * Parse a region of an RGB file into a picture. The file may be gzip
+     * compressed.
+     *
+     * @param path path to file
+     * @param x column of the left edge of the region
+     * @param y row of the top edge of the region
+     * @param width width of the region
+     * @param height height of the region
+     * @return the pixels of the region
+     * @throws FileNotFoundException if path is not found
+     * @throws RGBException if the region is not in the correct format
+     * @throws IllegalArgumentException if the region is empty or not inside
+     *         the picture
+     */
+    static Picture parse(String path, int x, int y, int width, int height)
+            throws FileNotFoundException, RGBException {
+        if (x < 0 || y < 0 || width < 1 || height < 1) {
+            throw new IllegalArgumentException("invalid region");
+        }
+        if ((long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("picture is too large");
+        }
+        ReadableByteChannel in;
+        try {
+            in = RGBGzip.open(path);
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try (ReadableByteChannel channel = in) {
+            RGBRegionParser parser =
+                    new RGBRegionParser(channel, x, y, width, height);
+            RGBEvent event = RGBMetrics.begin(RGBMetrics.PARSE);
+            Picture picture = null;
+            try {
+                picture = parser.parse(path);
+                return picture;
+            } finally {
+                RGBMetrics.end(event, parser.bytesRead,
+                        picture == null ? 0 : (long) width * height);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Find the first row of the region and parse the region.
+     *
+     * @param path path to file, to find its index
+     * @return the pixels of the region
+     * @throws IOException if the file cannot be read
+     * @throws RGBException if the region is not in the correct format
+     */
+    private Picture parse(String path) throws IOException, RGBException {
+        if (!fill()) {
+            errors.record(RGBErrors.EMPTY, 0, 0);
+            errors.check();
+        }
+        long row = 0;
+        int[] header = header();
+        if (header != null) {
+            imageWidth = header[0];
+            checkColumns();
+            if ((long) top + height > header[1]) {
+                throw outside();
+            }
+            RGBIndex index = RGBIndex.read(path);
+            if (channel instanceof FileChannel && index != null
+                    && index.width() == header[0]
+                    && index.height() == header[1]
+                    && index.offset(0) == pos) {
+                ((FileChannel) channel).position(index.offset(top));
+                pos = limit;
+                row = top;
+            }
+        }
+        if (row < top && imageWidth < 0) {
+            imageWidth = skipLine() + 1;
+            checkColumns();
+            row++;
+        }
+        long missing = skipLines(top - row);
+        if (missing > 0) {
+            // a line without a newline at the end of the file is a row
+            boolean open = limit > 0 && bytes[limit - 1] != '\n';
+            endOfFile(header, top - missing + (open ? 1 : 0));
+        }
+        for (int r = 0; r < height && !stopped && !tokenizer.isStopped();
+                r++) {
+            if (!fill()) {
+                endOfFile(header, top + r);
+                break;
+            }
+            readRow(top + r);
+        }
+        errors.check();
+        return picture;
+    }
+
+    /**
+     * Handle a file that ends before the last row of the region. A file with
+     * a header is shorter than it says, which is reported as by load(), at
+     * the row where the file ends; any other file is just too short for the
+     * region.
+     *
+     * @param header the width and height from the header, or null
+     * @param row index of the row where the file ends
+     * @throws RGBException if the file has a header
+     * @throws IllegalArgumentException if the file has no header
+     */
+    private void endOfFile(int[] header, long row) throws RGBException {
+        if (header == null) {
+            throw outside();
+        }
+        errors.record(RGBErrors.HEADER, 0, (int) row);
+        errors.check();
+    }
+
+    @Override
+    public void row(int y, int[] row, int n) {
+        if (picture == null) {
+            // only once a whole row of the region has been read, so that a
+            // region too large for the file fails before it is allocated
+            picture = new Picture(width, height);
+            pixels = picture.getRGBData();
+        }
+        System.arraycopy(row, 0, pixels, (y - top) * width, width);
+    }
+
+    /**
+     * Read one row of the region: skip the columns to its left, parse its
+     * pixels, and count the columns to its right.
+     *
+     * @param row index of the row
+     * @throws IOException if the file cannot be read
+     */
+    private void readRow(int row) throws IOException {
+        long tabs = 0;
+        boolean blank = true;
+        while (tabs < left && fill()) {
+            byte c = bytes[pos];
+            if (c == '\n') {
+                break;
+            }
+            pos++;
+            if (c == '\t') {
+                tabs++;
+            }
+            if (c != '\r') {
+                blank = false;
+            }
+        }
+        if (tabs < left) {
+            // the line ended before the region
+            if (fill()) {
+                pos++;
+            }
+            if (blank) {
+                tokenizer.feed(NEWLINE, 0, 1);
+                return;
+            }
+            if (imageWidth < 0) {
+                imageWidth = tabs + 1;
+                checkColumns();
+            }
+            stopped = errors.record(RGBErrors.RAGGED, 0, row);
+            tokenizer.skipRow();
+            return;
+        }
+
+        long last = (long) left + width - 1;
+        while (fill()) {
+            int i = pos;
+            while (i < limit) {
+                byte c = bytes[i];
+                if (c == '\n' || c == '\t' && tabs == last) {
+                    break;
+                }
+                if (c == '\t') {
+                    tabs++;
+                }
+                i++;
+            }
+            tokenizer.feed(bytes, pos, i - pos);
+            pos = i;
+            if (i < limit) {
+                break;
+            }
+        }
+        tabs += skipLine();
+        tokenizer.feed(NEWLINE, 0, 1);
+        if (imageWidth < 0) {
+            imageWidth = tabs + 1;
+            checkColumns();
+        } else if (tabs + 1 != imageWidth) {
+            stopped = errors.record(RGBErrors.RAGGED, 0, row);
+        }
+    }
+
+    /**
+     * Read the header line, if the file starts with one.
+     *
+     * @return the width and height, or null if there is no header
+     */
+    private int[] header() {
+        if (bytes[pos] != '#') {
+            return null;
+        }
+        int end = RGBScan.indexOf(buf, pos,
+                Math.min(limit, pos + RGBHeader.MAX_LENGTH), (byte) '\n');
+        int[] size = end < 0 ? null : RGBHeader.parse(bytes, end);
+        if (size != null) {
+            pos = end + 1;
+        }
+        return size;
+    }
+
+    /**
+     * Check that the region is not wider than the picture.
+     *
+     * @throws IllegalArgumentException if the region is outside the picture
+     */
+    private void checkColumns() {
+        if ((long) left + width > imageWidth) {
+            throw outside();
+        }
+    }
+
+    /**
+     * Create the error for a region that is not inside the picture.
+     *
+     * @return the error
+     */
+    private static IllegalArgumentException outside() {
+        return new IllegalArgumentException("region is outside the picture");
+    }
+
+    /**
+     * Make sure there is at least one byte left in the buffer.
+     *
+     * @return false at the end of the file
+     * @throws IOException if the file cannot be read
+     */
+    private boolean fill() throws IOException {
+        while (pos == limit) {
+            buf.clear();
+            int n = channel.read(buf);
+            if (n < 0) {
+                return false;
+            }
+            pos = 0;
+            limit = n;
+            bytesRead += n;
+        }
+        return true;
+    }
+
+    /**
+     * Skip the rest of the current line, including its newline.
+     *
+     * @return the number of tabs skipped
+     * @throws IOException if the file cannot be read
+     */
+    private long skipLine() throws IOException {
+        long tabs = 0;
+        while (fill()) {
+            int end = RGBScan.indexOf(buf, pos, limit, (byte) '\n');
+            tabs += RGBScan.count(buf, pos, end < 0 ? limit : end,
+                    (byte) '\t');
+            if (end >= 0) {
+                pos = end + 1;
+                break;
+            }
+            pos = limit;
+        }
+        return tabs;
+    }
+
+    /**
+     * Skip whole lines, counting their newlines a buffer at a time.
+     *
+     * @param lines the number of lines to skip
+     * @return the number of lines left to skip when the file ended, or 0
+     * @throws IOException if the file cannot be read
+     */
+    private long skipLines(long lines) throws IOException {
+        while (lines > 0 && fill()) {
+            int n = RGBScan.count(buf, pos, limit, (byte) '\n');
+            if (n < lines) {
+                lines -= n;
+                pos = limit;
+            } else {
+                for (; lines > 0; lines--) {
+                    pos = RGBScan.indexOf(buf, pos, limit, (byte) '\n') + 1;
+                }
+            }
+        }
+        return lines;
+    }
+
+}
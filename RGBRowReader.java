@@ -0,0 +1,165 @@
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+
+/**
+ * Reads an RGB file one row at a time, so that images too large to fit in
+ * memory can still be processed. Only a small buffer of the file is held at
+ * once. Each row is validated before it is returned; the first error in the
+ * file is thrown when the row that contains it is reached. A reader inside
+ * this package may instead rank errors as load() does, reading to the end
+ * of the file after the first error before throwing.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+public class RGBRowReader implements Closeable, RGBTokenizer.RowSink {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+    private final RGBErrors errors;
+    private final RGBTokenizer tokenizer;
+    private final ArrayDeque<int[]> rows = new ArrayDeque<>();
+    private boolean done;
+    private long bytes;
+    private long pixels;
+    private RGBEvent event;
+
+    /**
+     * Opens an RGB file for reading. The file may be gzip compressed.
+     *
+     * @param path the path to the file
+     * @throws FileNotFoundException if path is not found
+     */
+    public RGBRowReader(String path) throws FileNotFoundException {
+        this(open(path), true);
+    }
+
+    /**
+     * Opens an RGB file for reading. The file may be gzip compressed.
+     *
+     * @param path the path to the file
+     * @param failFast if false, throw the same error as load() instead of
+     *        the first one in the file
+     * @throws FileNotFoundException if path is not found
+     */
+    RGBRowReader(String path, boolean failFast)
+            throws FileNotFoundException {
+        this(open(path), failFast);
+    }
+
+    /**
+     * Reads RGB text from a channel.
+     *
+     * @param channel the input
+     * @param failFast if false, throw the same error as load() instead of
+     *        the first one in the file
+     */
+    RGBRowReader(ReadableByteChannel channel, boolean failFast) {
+        this.channel = channel;
+        this.errors = new RGBErrors(failFast);
+        this.tokenizer = new RGBTokenizer(this, errors);
+    }
+
+    /**
+     * Open a file, decompressing it if needed.
+     *
+     * @param path the path to the file
+     * @return the uncompressed contents
+     * @throws FileNotFoundException if path is not found
+     */
+    private static ReadableByteChannel open(String path)
+            throws FileNotFoundException {
+        try {
+            return RGBGzip.open(path);
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the number of pixels in each row.
+     *
+     * @return the width, or -1 if no row has been read yet
+     */
+    public int width() {
+        return tokenizer.width();
+    }
+
+    /**
+     * Reads the next row of pixels. Each pixel is encoded as by
+     * {@link Picture#getRGB(int, int)}, without the alpha bits.
+     *
+     * @return the next row, or null at the end of the file
+     * @throws RGBException if file format is incorrect
+     */
+    public int[] readRow() throws RGBException {
+        if (event == null && !done) {
+            event = RGBMetrics.begin(RGBMetrics.PARSE);
+        }
+        while (rows.isEmpty() && !done) {
+            try {
+                buf.clear();
+                if (channel.read(buf) < 0) {
+                    done = true;
+                    tokenizer.finish();
+                } else {
+                    buf.flip();
+                    bytes += buf.remaining();
+                    done = !tokenizer.feed(buf);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (rows.isEmpty()) {
+            endEvent(errors.isEmpty() ? pixels : 0);
+            errors.check();
+        }
+        int[] row = rows.poll();
+        if (row != null) {
+            pixels += row.length;
+        }
+        return row;
+    }
+
+    @Override
+    public void row(int y, int[] pixels, int width) {
+        int[] row = new int[width];
+        System.arraycopy(pixels, 0, row, 0, width);
+        rows.add(row);
+    }
+
+    /**
+     * Closes the file.
+     */
+    @Override
+    public void close() {
+        endEvent(0);
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Finish timing the parse phase of {@link RGBMetrics}, which runs from
+     * the first call to readRow() to the end of the file.
+     *
+     * @param loaded number of pixels loaded without errors
+     */
+    private void endEvent(long loaded) {
+        RGBMetrics.end(event, bytes, loaded);
+        event = null;
+    }
+
+}
@@ -0,0 +1,83 @@
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for RGBRowReader and RGBRowWriter.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+public class RGBRowReaderTest {
+
+    /**
+     * Tests reading valid RGB files one row at a time.
+     */
+    @Test
+    public void testRead() {
+        testRead("3x4.png", "3x4.txt");
+        testRead("6x5.png", "6x5.txt");
+    }
+
+    /**
+     * Reads every row of an RGB file and compares it to the picture.
+     *
+     * @param picfile path to the jpg/png file
+     * @param rgbfile path to the rgb/txt file
+     */
+    private void testRead(String picfile, String rgbfile) {
+        Picture expect = new Picture(picfile);
+        try (RGBRowReader reader = new RGBRowReader(rgbfile)) {
+            for (int y = 0; y < expect.height(); y++) {
+                int[] row = reader.readRow();
+                assertEquals(expect.width(), row.length, rgbfile + " width");
+                for (int x = 0; x < row.length; x++) {
+                    assertEquals(expect.getRGB(x, y) & 0xFFFFFF, row[x],
+                            String.format("%s (%d, %d)", rgbfile, x, y));
+                }
+            }
+            assertNull(reader.readRow());
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Tests that the rows before an error are returned before it is thrown.
+     */
+    @Test
+    public void testError() {
+        try (RGBRowReader reader = new RGBRowReader("ragged.txt")) {
+            assertEquals(3, reader.readRow().length);
+            reader.readRow();
+            fail("RGBException not thrown: ragged");
+        } catch (RGBException e) {
+            assertEquals("ragged (x=0, y=1)", e.getMessage());
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Tests that writing rows one at a time matches RGBFileFormat.save().
+     */
+    @Test
+    public void testWrite() {
+        try (RGBRowReader reader = new RGBRowReader("6x5.txt");
+                RGBRowWriter writer = new RGBRowWriter("6x5.out")) {
+            for (int[] row = reader.readRow(); row != null;
+                    row = reader.readRow()) {
+                writer.writeRow(row);
+            }
+        } catch (Exception e) {
+            fail(e);
+        }
+        try {
+            assertEquals(RGBFileFormat.load("6x5.txt"),
+                    RGBFileFormat.load("6x5.out"));
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes an RGB file one row at a time, so that images too large to fit in
+ * memory can still be saved. The output is the same as
+ * {@link RGBFileFormat#save(String, Picture)}.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+public class RGBRowWriter implements Closeable {
+
+    private final WritableByteChannel channel;
+    private final RGBWriter writer;
+    private int width = -1;
+    private long pixels;
+    private RGBEvent event = RGBMetrics.begin(RGBMetrics.SAVE);
+
+    /**
+     * Creates an RGB file for writing. If its name ends with ".gz", the file
+     * is gzip compressed.
+     *
+     * @param path the path to the file
+     * @throws FileNotFoundException if path is not found
+     */
+    public RGBRowWriter(String path) throws FileNotFoundException {
+        this(RGBGzip.create(path));
+    }
+
+    /**
+     * Writes RGB text to a channel.
+     *
+     * @param channel the output
+     */
+    RGBRowWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        this.writer = new RGBWriter(channel);
+    }
+
+    /**
+     * Writes the next row of pixels. Every row must have the same width.
+     *
+     * @param row the color of each pixel, encoded as by
+     *        {@link Picture#getRGB(int, int)}
+     * @throws IllegalArgumentException if the row is empty or its width
+     *         differs from the first row
+     */
+    public void writeRow(int[] row) {
+        if (width < 0) {
+            if (row.length == 0) {
+                throw new IllegalArgumentException("row must not be empty");
+            }
+            width = row.length;
+        } else if (row.length != width) {
+            throw new IllegalArgumentException(
+                    "row must have width " + width + ": " + row.length);
+        }
+        try {
+            writer.writeRow(row, 0, width);
+            pixels += width;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes any buffered rows and closes the file.
+     */
+    @Override
+    public void close() {
+        try {
+            writer.flush();
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            RGBMetrics.end(event, writer.position(), pixels);
+            event = null;
+        }
+    }
+
+}
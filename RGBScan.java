@@ -0,0 +1,127 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Fast scans of RGB text that look only at line structure, not at pixels.
+ * Bytes are counted eight at a time by treating each long as a vector of
+ * bytes (SWAR): a byte of {@code v ^ pattern} is zero where the byte matched,
+ * and zero bytes are found with a few arithmetic operations and a bit count.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+class RGBScan {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOW7 = 0x7F7F7F7F7F7F7F7FL;
+
+    /**
+     * Private constructor; this class only has static methods.
+     */
+    private RGBScan() {
+    }
+
+    /**
+     * Count the bytes equal to b in part of a buffer.
+     *
+     * @param buf the buffer
+     * @param from index of the first byte
+     * @param to index after the last byte
+     * @param b the byte to count
+     * @return the number of matches
+     */
+    static int count(ByteBuffer buf, int from, int to, byte b) {
+        long pattern = (b & 0xFFL) * ONES;
+        int count = 0;
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            long v = buf.getLong(i) ^ pattern;
+            // the high bit of each byte is set exactly where v is zero
+            long zeros = ~(((v & LOW7) + LOW7) | v | LOW7);
+            count += Long.bitCount(zeros);
+        }
+        for (; i < to; i++) {
+            if (buf.get(i) == b) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Find the first byte equal to b in part of a buffer.
+     *
+     * @param buf the buffer
+     * @param from index of the first byte
+     * @param to index after the last byte
+     * @param b the byte to find
+     * @return the index of the first match, or -1 if there is none
+     */
+    static int indexOf(ByteBuffer buf, int from, int to, byte b) {
+        for (int i = from; i < to; i++) {
+            if (buf.get(i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find the dimensions of RGB text: the width from the tabs in the first
+     * line, and the height from the number of newlines. A last line without
+     * a newline is counted. The pixels are not checked. If the text starts
+     * with a header line, its dimensions are returned without reading on.
+     *
+     * @param channel the text, read to the end
+     * @param size the size of the file
+     * @return the dimensions
+     * @throws IOException if the text cannot be read
+     * @throws IllegalArgumentException if the picture would be too large
+     */
+    static RGBInfo probe(ReadableByteChannel channel, long size)
+            throws IOException {
+        RGBEvent event = RGBMetrics.begin(RGBMetrics.SCAN);
+        ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+        long lines = 0;
+        long tabs = 0;
+        long bytes = 0;
+        boolean firstLine = true;
+        byte last = '\n';
+        while (channel.read(buf) >= 0) {
+            int n = buf.position();
+            if (n == 0) {
+                continue;
+            }
+            if (bytes == 0 && buf.get(0) == '#') {
+                int end = indexOf(buf, 0, n, (byte) '\n');
+                int[] header = end < 0 ? null
+                        : RGBHeader.parse(buf.array(), end);
+                if (header != null) {
+                    RGBMetrics.end(event, n, 0);
+                    return new RGBInfo(header[0], header[1], size);
+                }
+            }
+            if (firstLine) {
+                int end = indexOf(buf, 0, n, (byte) '\n');
+                firstLine = end < 0;
+                tabs += count(buf, 0, firstLine ? n : end, (byte) '\t');
+            }
+            lines += count(buf, 0, n, (byte) '\n');
+            last = buf.get(n - 1);
+            bytes += n;
+            buf.clear();
+        }
+        RGBMetrics.end(event, bytes, 0);
+        if (bytes == 0) {
+            return new RGBInfo(0, 0, size);
+        }
+        long height = lines + (last == '\n' ? 0 : 1);
+        if (tabs + 1 > Integer.MAX_VALUE || height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("picture is too large");
+        }
+        return new RGBInfo((int) tabs + 1, (int) height, size);
+    }
+
+}
@@ -0,0 +1,145 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A cache directory of RGBB snapshots of RGB files that have loaded without
+ * errors. A snapshot is named by a SHA-256 hash of the canonical path, size
+ * and last-modified time of its RGB file, so a file that changes gets a new
+ * snapshot and the old one is never read again. Snapshots are written to a
+ * temporary file and then moved into place, so a reader never sees a
+ * partial one, and are checked against their CRC32 when loaded.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+class RGBSnapshot {
+
+    private static final String SUFFIX = ".rgbb";
+
+    /**
+     * Private constructor; this class only has static methods.
+     */
+    private RGBSnapshot() {
+    }
+
+    /**
+     * Load a picture from its snapshot, or parse the RGB file and write a
+     * snapshot of it if there is none. A snapshot that cannot be read is
+     * deleted and the file is parsed instead; a snapshot that cannot be
+     * written is skipped.
+     *
+     * @param path path to the RGB file
+     * @param cacheDir the directory of snapshots, created if needed
+     * @return the corresponding picture
+     * @throws FileNotFoundException if path is not found
+     * @throws RGBException if file format is incorrect
+     */
+    static Picture load(String path, String cacheDir)
+            throws FileNotFoundException, RGBException {
+        File file = new File(path);
+        if (!file.isFile()) {
+            throw new FileNotFoundException(path);
+        }
+        String key = key(file);
+        Path snapshot = Paths.get(cacheDir, key + SUFFIX);
+        if (Files.isRegularFile(snapshot)) {
+            try {
+                return RGBBFileFormat.load(snapshot.toString());
+            } catch (RGBException | UncheckedIOException
+                    | FileNotFoundException e) {
+                delete(snapshot);
+            }
+        }
+        Picture picture = RGBParser.parse(path);
+        // a file changed while it was parsed must not be cached as the old one
+        if (key.equals(key(file))) {
+            write(snapshot, picture);
+        }
+        return picture;
+    }
+
+    /**
+     * Get the name of the snapshot of a file.
+     *
+     * @param file the RGB file
+     * @return the hash of its canonical path, size and last-modified time,
+     *         in hex
+     */
+    private static String key(File file) {
+        String id;
+        try {
+            id = file.getCanonicalPath() + "\0" + file.length() + "\0"
+                    + file.lastModified();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] hash;
+        try {
+            hash = MessageDigest.getInstance("SHA-256")
+                    .digest(id.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform has SHA-256
+            throw new IllegalStateException(e);
+        }
+        StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16))
+                    .append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Write a snapshot to a temporary file, then move it into place.
+     *
+     * @param snapshot path to the snapshot
+     * @param picture the picture
+     */
+    private static void write(Path snapshot, Picture picture) {
+        Path temp = null;
+        try {
+            Path dir = snapshot.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            temp = Files.createTempFile(dir, "snapshot", ".tmp");
+            RGBBFileFormat.save(temp.toString(), picture);
+            try {
+                Files.move(temp, snapshot, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, snapshot,
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+            temp = null;
+        } catch (IOException | UncheckedIOException e) {
+            // the cache is only an optimization
+        } finally {
+            if (temp != null) {
+                delete(temp);
+            }
+        }
+    }
+
+    /**
+     * Delete a file, ignoring any error.
+     *
+     * @param path path to the file
+     */
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // a later load will try again
+        }
+    }
+
+}
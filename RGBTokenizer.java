@@ -0,0 +1,479 @@
+import java.nio.ByteBuffer;
+
+/**
+ * State machine that validates RGB text one byte at a time. Bytes can be fed
+ * in chunks of any size, so a pixel or row may be split across calls. Channel
+ * values are accumulated as ints and each completed row is handed to a
+ * {@link RowSink}, without creating any objects per token. Lines may end with
+ * "\r\n"; a '\r' anywhere else is an error, like any other stray character.
+ * <p>
+ * At the beginning of a file, a first line that is a valid {@link RGBHeader}
+ * gives the width and height up front; rows are then numbered from the line
+ * after it. A first line that starts with '#' but is not a valid header is
+ * read as pixels, as it always was.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+class RGBTokenizer {
+
+    /**
+     * Receives each row of pixels once it has been read without error.
+     */
+    interface RowSink {
+
+        /**
+         * Accept one row. The array is reused for the next row, so it must be
+         * copied if it is kept.
+         *
+         * @param y row index
+         * @param pixels rgb value of each pixel
+         * @param width number of pixels in the row
+         */
+        void row(int y, int[] pixels, int width);
+
+        /**
+         * Accept the dimensions given by the header line, before any row.
+         *
+         * @param width number of pixels in each row
+         * @param height number of rows
+         */
+        default void header(int width, int height) {
+        }
+    }
+
+    // states of the color channel being read
+    private static final int LEAD = 0;
+    private static final int SIGN = 1;
+    private static final int DIGITS = 2;
+    private static final int TRAIL = 3;
+    private static final int BAD = 4;
+
+    private static final int CHUNK = 8192;
+
+    private final RowSink sink;
+    private final RGBErrors errors;
+    private final boolean headerAllowed;
+    private final int firstColumn;
+    private int[] row = new int[256];
+    private byte[] chunk;
+    private byte[] header;
+    private int headerLength;
+    private int width = -1;
+    private int expectedHeight = -1;
+    private int x;
+    private int y;
+    private long bytes;
+    private boolean lineStart = true;
+    private boolean stopped;
+    private boolean carriageReturn;
+
+    // pixel being read
+    private int commas;
+    private int opens;
+    private int closes;
+    private byte first;
+    private byte last;
+    private int rgb;
+    private boolean badNumber;
+    private boolean badRange;
+
+    // channel being read
+    private int state;
+    private boolean negative;
+    private int value;
+
+    /**
+     * Create a tokenizer that starts at the beginning of a file.
+     *
+     * @param sink receives each row
+     * @param errors records format errors
+     */
+    RGBTokenizer(RowSink sink, RGBErrors errors) {
+        this.sink = sink;
+        this.errors = errors;
+        this.headerAllowed = true;
+        this.firstColumn = 0;
+    }
+
+    /**
+     * Create a tokenizer that starts at the beginning of a row in the middle
+     * of a file, when the width of the first row is already known.
+     *
+     * @param sink receives each row
+     * @param errors records format errors
+     * @param firstRow index of the row where the input starts
+     * @param width number of pixels in the first row of the file
+     */
+    RGBTokenizer(RowSink sink, RGBErrors errors, int firstRow, int width) {
+        this(sink, errors, firstRow, width, 0);
+    }
+
+    /**
+     * Create a tokenizer that reads only some of the columns of each row,
+     * starting at a column in the middle of a row. Each row is the bytes of
+     * its pixels in those columns followed by a newline.
+     *
+     * @param sink receives each row
+     * @param errors records format errors
+     * @param firstRow index of the row where the input starts
+     * @param width number of pixels read from each row
+     * @param firstColumn index of the column where each row starts
+     */
+    RGBTokenizer(RowSink sink, RGBErrors errors, int firstRow, int width,
+            int firstColumn) {
+        this.sink = sink;
+        this.errors = errors;
+        this.headerAllowed = false;
+        this.firstColumn = firstColumn;
+        this.y = firstRow;
+        this.width = width;
+        this.row = new int[Math.max(width, 1)];
+    }
+
+    /**
+     * Get the width of the first row.
+     *
+     * @return number of pixels in the first row, or -1 if not yet known
+     */
+    int width() {
+        return width;
+    }
+
+    /**
+     * Get the number of lines read so far, including a final line without a
+     * newline once {@link #finish()} is called.
+     *
+     * @return number of lines
+     */
+    int height() {
+        return y;
+    }
+
+    /**
+     * Check if no later input can change the result.
+     *
+     * @return true if parsing can stop
+     */
+    boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Count a row that was checked without being read, at the start of a
+     * line.
+     */
+    void skipRow() {
+        y++;
+    }
+
+    /**
+     * Read the remaining bytes of a buffer. A buffer without an array, such
+     * as a mapped file, is copied into a reused 8 KB array a piece at a time
+     * and each piece is scanned there.
+     *
+     * @param buf the input
+     * @return false if parsing can stop
+     */
+    boolean feed(ByteBuffer buf) {
+        if (buf.hasArray()) {
+            int len = buf.remaining();
+            feed(buf.array(), buf.arrayOffset() + buf.position(), len);
+            buf.position(buf.position() + len);
+            return !stopped;
+        }
+        if (chunk == null) {
+            chunk = new byte[CHUNK];
+        }
+        while (buf.hasRemaining() && !stopped) {
+            int len = Math.min(buf.remaining(), CHUNK);
+            buf.get(chunk, 0, len);
+            feed(chunk, 0, len);
+        }
+        return !stopped;
+    }
+
+    /**
+     * Read a range of bytes.
+     *
+     * @param buf the input
+     * @param off index of the first byte
+     * @param len number of bytes
+     * @return false if parsing can stop
+     */
+    boolean feed(byte[] buf, int off, int len) {
+        if (bytes == 0 && len > 0 && headerAllowed && buf[off] == '#') {
+            header = new byte[RGBHeader.MAX_LENGTH];
+        }
+        bytes += len;
+        int end = off + len;
+        int i = header == null ? off : readHeader(buf, off, end);
+        scan(buf, i, end);
+        return !stopped;
+    }
+
+    /**
+     * Collect the bytes of the first line while it may still be a header,
+     * and once it ends, either take its dimensions or read it as pixels.
+     *
+     * @param buf the input
+     * @param off index of the first byte
+     * @param end index after the last byte
+     * @return index of the first byte after the header
+     */
+    private int readHeader(byte[] buf, int off, int end) {
+        int i = off;
+        while (i < end && buf[i] != '\n' && headerLength < header.length) {
+            header[headerLength++] = buf[i++];
+        }
+        if (i == end) {
+            return i;
+        }
+        int[] size = buf[i] == '\n'
+                ? RGBHeader.parse(header, headerLength) : null;
+        byte[] line = header;
+        header = null;
+        if (size == null) {
+            scan(line, 0, headerLength);
+            return i;
+        }
+        width = size[0];
+        expectedHeight = size[1];
+        sink.header(width, expectedHeight);
+        return i + 1;
+    }
+
+    /**
+     * Read a range of bytes that are not part of the header.
+     *
+     * @param buf the input
+     * @param off index of the first byte
+     * @param end index after the last byte
+     */
+    private void scan(byte[] buf, int off, int end) {
+        for (int i = off; i < end && !stopped; i++) {
+            byte c = buf[i];
+            if (carriageReturn && c != '\n') {
+                strayReturn();
+            }
+            if (c >= '0' && c <= '9') {
+                digit(c);
+                continue;
+            }
+            switch (c) {
+                case ' ':
+                    space();
+                    break;
+                case ',':
+                    mark(c);
+                    commas++;
+                    endChannel();
+                    break;
+                case '(':
+                    mark(c);
+                    opens++;
+                    break;
+                case ')':
+                    mark(c);
+                    closes++;
+                    endChannel();
+                    break;
+                case '\t':
+                    lineStart = false;
+                    endPixel();
+                    x++;
+                    if (x == width) {
+                        // the row is too long, no need to wait for its end
+                        stopped = errors.record(RGBErrors.RAGGED, 0, y);
+                    }
+                    break;
+                case '\n':
+                    carriageReturn = false;
+                    endLine();
+                    break;
+                case '\r':
+                    // only allowed as part of a "\r\n" line ending
+                    carriageReturn = true;
+                    break;
+                case '-':
+                    mark(c);
+                    state = state == LEAD ? SIGN : BAD;
+                    negative = true;
+                    break;
+                default:
+                    mark(c);
+                    state = BAD;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Finish the last line, if the input did not end with a newline.
+     */
+    void flush() {
+        if (header != null) {
+            byte[] line = header;
+            header = null;
+            scan(line, 0, headerLength);
+        }
+        if (carriageReturn) {
+            strayReturn();
+        }
+        if (!lineStart && !stopped) {
+            endLine();
+        }
+    }
+
+    /**
+     * Finish the last line and throw the first error found, if any.
+     *
+     * @throws RGBException if file format is incorrect
+     */
+    void finish() throws RGBException {
+        flush();
+        if (bytes == 0) {
+            errors.record(RGBErrors.EMPTY, 0, 0);
+        }
+        if (y < expectedHeight) {
+            errors.record(RGBErrors.HEADER, 0, y);
+        }
+        errors.check();
+    }
+
+    /**
+     * Note a character that is part of the current pixel.
+     *
+     * @param c the character
+     */
+    private void mark(byte c) {
+        if (first == 0) {
+            first = c;
+        }
+        last = c;
+        lineStart = false;
+    }
+
+    /**
+     * Treat a '\r' that was not followed by '\n' like any other stray
+     * character in the current pixel.
+     */
+    private void strayReturn() {
+        carriageReturn = false;
+        mark((byte) '\r');
+        state = BAD;
+    }
+
+    /**
+     * Read a digit of the current channel.
+     *
+     * @param c the digit
+     */
+    private void digit(byte c) {
+        mark(c);
+        if (state == LEAD || state == SIGN || state == DIGITS) {
+            state = DIGITS;
+            value = Math.min(value * 10 + c - '0', 256);
+        } else {
+            state = BAD;
+        }
+    }
+
+    /**
+     * Read a space, which may only surround a channel's value.
+     */
+    private void space() {
+        lineStart = false;
+        if (state == DIGITS) {
+            state = TRAIL;
+        } else if (state == SIGN) {
+            state = BAD;
+        }
+    }
+
+    /**
+     * Check the channel that was just read and start the next one.
+     */
+    private void endChannel() {
+        if (state == DIGITS || state == TRAIL) {
+            if (value > 255 || negative && value > 0) {
+                badRange = true;
+            }
+        } else {
+            badNumber = true;
+        }
+        rgb = (rgb << 8) + (value & 0xFF);
+        state = LEAD;
+        negative = false;
+        value = 0;
+    }
+
+    /**
+     * Check the pixel that was just read, keep its color, and start the next
+     * one.
+     */
+    private void endPixel() {
+        if (commas != 2) {
+            stopped = errors.record(RGBErrors.COMMAS, firstColumn + x, y);
+        } else if (opens != 1 || closes != 1 || first != '(' || last != ')') {
+            stopped = errors.record(RGBErrors.PARENS, firstColumn + x, y);
+        } else {
+            if (badRange) {
+                stopped = errors.record(RGBErrors.RANGE, firstColumn + x, y);
+            }
+            if (badNumber) {
+                stopped = errors.record(RGBErrors.NUMBER, firstColumn + x,
+                        y);
+            }
+        }
+        if (errors.isEmpty()) {
+            if (x == row.length && (width < 0 || x < width)) {
+                int[] bigger = new int[width < 0 ? row.length * 2
+                        : (int) Math.min(row.length * 2L, width)];
+                System.arraycopy(row, 0, bigger, 0, row.length);
+                row = bigger;
+            }
+            if (x < row.length) {
+                row[x] = rgb & 0xFFFFFF;
+            }
+        }
+        commas = 0;
+        opens = 0;
+        closes = 0;
+        first = 0;
+        last = 0;
+        rgb = 0;
+        badNumber = false;
+        badRange = false;
+        state = LEAD;
+        negative = false;
+        value = 0;
+    }
+
+    /**
+     * Finish the current line and start the next one.
+     */
+    private void endLine() {
+        if (lineStart) {
+            stopped = errors.record(RGBErrors.BLANK, 0, y);
+        } else {
+            endPixel();
+            int n = x + 1;
+            if (width < 0) {
+                width = n;
+            } else if (n != width) {
+                stopped = errors.record(RGBErrors.RAGGED, 0, y);
+            }
+            if (expectedHeight >= 0 && y >= expectedHeight) {
+                stopped = errors.record(RGBErrors.HEADER, 0, y);
+            }
+            if (errors.isEmpty()) {
+                sink.row(y, row, width);
+            }
+        }
+        x = 0;
+        y++;
+        lineStart = true;
+    }
+
+}
@@ -0,0 +1,141 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes rows of pixels as RGB text. Each pixel is formatted as "(rrr, ggg,
+ * bbb)" straight into a reusable byte buffer, using a table of the padded
+ * text of every channel value, and the buffer is written to a channel
+ * whenever it fills up.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+class RGBWriter {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int PIXEL_SIZE = 15;
+    private static final byte[] CHANNELS = new byte[256 * 3];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            byte[] text = String.format("%3d", i)
+                    .getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(text, 0, CHANNELS, i * 3, 3);
+        }
+    }
+
+    private final WritableByteChannel channel;
+    private final byte[] newline;
+    private final byte[] bytes;
+    private final ByteBuffer buf;
+    private int pos;
+    private long flushed;
+
+    /**
+     * Create a writer that ends each row with the platform line separator,
+     * like PrintWriter.println().
+     *
+     * @param channel where to write
+     */
+    RGBWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        this.newline = System.lineSeparator()
+                .getBytes(StandardCharsets.US_ASCII);
+        this.bytes = new byte[BUFFER_SIZE];
+        this.buf = ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * Get the number of bytes written so far, including those still in the
+     * buffer.
+     *
+     * @return the offset where the next row will start
+     */
+    long position() {
+        return flushed + pos;
+    }
+
+    /**
+     * Write a header line giving the dimensions of the picture. It must come
+     * before the first row.
+     *
+     * @param width the width of the picture
+     * @param height the height of the picture
+     * @throws IOException if the channel cannot be written
+     */
+    void writeHeader(int width, int height) throws IOException {
+        byte[] line = RGBHeader.format(width, height);
+        if (pos + line.length > bytes.length) {
+            flush();
+        }
+        System.arraycopy(line, 0, bytes, pos, line.length);
+        pos += line.length;
+    }
+
+    /**
+     * Write one row of pixels, followed by a line separator.
+     *
+     * @param pixels rgb value of each pixel
+     * @param off index of the first pixel of the row
+     * @param width number of pixels in the row
+     * @throws IOException if the channel cannot be written
+     */
+    void writeRow(int[] pixels, int off, int width) throws IOException {
+        int end = off + width;
+        for (int i = off; i < end; i++) {
+            if (pos + PIXEL_SIZE + newline.length > bytes.length) {
+                flush();
+            }
+            int rgb = pixels[i];
+            bytes[pos] = '(';
+            channel((rgb >> 16) & 0xFF, pos + 1);
+            bytes[pos + 4] = ',';
+            bytes[pos + 5] = ' ';
+            channel((rgb >> 8) & 0xFF, pos + 6);
+            bytes[pos + 9] = ',';
+            bytes[pos + 10] = ' ';
+            channel(rgb & 0xFF, pos + 11);
+            bytes[pos + 14] = ')';
+            pos += PIXEL_SIZE;
+            if (i < end - 1) {
+                bytes[pos++] = '\t';
+            }
+        }
+        if (pos + newline.length > bytes.length) {
+            flush();
+        }
+        for (byte b : newline) {
+            bytes[pos++] = b;
+        }
+    }
+
+    /**
+     * Copy the padded text of one channel into the buffer.
+     *
+     * @param value channel value from 0 to 255
+     * @param at index in the buffer
+     */
+    private void channel(int value, int at) {
+        int from = value * 3;
+        bytes[at] = CHANNELS[from];
+        bytes[at + 1] = CHANNELS[from + 1];
+        bytes[at + 2] = CHANNELS[from + 2];
+    }
+
+    /**
+     * Write everything in the buffer to the channel.
+     *
+     * @throws IOException if the channel cannot be written
+     */
+    void flush() throws IOException {
+        buf.clear().limit(pos);
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        flushed += pos;
+        pos = 0;
+    }
+
+}
@@ -0,0 +1,103 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Handles to the methods of the RGB library that the benchmarks call. JMH
+ * only runs benchmarks in a named package, and a named package cannot refer
+ * to the library's classes in the default package, so each method is found
+ * by name once. Every handle takes and returns Object in place of the
+ * library's own types, and is called with invokeExact. A static final handle
+ * is a constant to the JIT, so calling it costs the same as a direct call.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+final class Api {
+
+    static final Class<?> PICTURE = type("Picture");
+
+    static final MethodHandle LOAD =
+            method("RGBFileFormat", "load", String.class);
+    static final MethodHandle LOAD_MAPPED =
+            method("RGBFileFormat", "loadMapped", String.class);
+    static final MethodHandle LOAD_PARALLEL =
+            method("RGBFileFormat", "loadParallel", String.class, int.class);
+    static final MethodHandle LOAD_SCANNER =
+            method("RGBScannerFormat", "load", String.class);
+    static final MethodHandle SAVE =
+            method("RGBFileFormat", "save", String.class, PICTURE);
+    static final MethodHandle CONVERT =
+            method("Convert", "main", String[].class);
+    static final MethodHandle DECODE = constructor(String.class);
+    static final MethodHandle NEW_PICTURE = constructor(int.class, int.class);
+    static final MethodHandle SET_RGB_ROWS =
+            method("Picture", "setRGBRows", int.class, int.class, int[].class);
+
+    /**
+     * Private constructor; this class only has static fields.
+     */
+    private Api() {
+    }
+
+    /**
+     * Find a class of the library.
+     *
+     * @param name the name of the class
+     * @return the class
+     */
+    private static Class<?> type(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Find a public method of the library, static or not. A method that is
+     * not static takes its object as the first argument.
+     *
+     * @param owner the name of the class
+     * @param name the name of the method
+     * @param params the types of its parameters
+     * @return the handle, with every reference type replaced by Object
+     */
+    private static MethodHandle method(String owner, String name,
+            Class<?>... params) {
+        try {
+            return erase(MethodHandles.publicLookup()
+                    .unreflect(type(owner).getMethod(name, params)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Find a public constructor of Picture.
+     *
+     * @param params the types of its parameters
+     * @return the handle, with every reference type replaced by Object
+     */
+    private static MethodHandle constructor(Class<?>... params) {
+        try {
+            return erase(MethodHandles.publicLookup().findConstructor(PICTURE,
+                    MethodType.methodType(void.class, params)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Replace the reference types of a handle by Object.
+     *
+     * @param handle the handle
+     * @return the handle with its type erased
+     */
+    private static MethodHandle erase(MethodHandle handle) {
+        return handle.asType(handle.type().erase());
+    }
+
+}
@@ -0,0 +1,59 @@
+package bench;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures Convert end to end, including opening and closing the files, in
+ * both directions between RGB text and png.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ConvertBenchmark {
+
+    /**
+     * Convert the png to RGB text.
+     *
+     * @param images the test images
+     * @param rates the megabytes and megapixels per second of text written
+     * @return the size of the file written
+     * @throws Throwable if the file cannot be converted
+     */
+    @Benchmark
+    public long pngToTxt(Images images, Rates rates) throws Throwable {
+        Api.CONVERT.invokeExact(
+                (Object) new String[] {images.png, images.outTxt});
+        rates.add(images.txtBytes, images.pixels);
+        return new File(images.outTxt).length();
+    }
+
+    /**
+     * Convert the RGB text to png.
+     *
+     * @param images the test images
+     * @param rates the megabytes and megapixels per second of text read
+     * @return the size of the file written
+     * @throws Throwable if the file cannot be converted
+     */
+    @Benchmark
+    public long txtToPng(Images images, Rates rates) throws Throwable {
+        Api.CONVERT.invokeExact(
+                (Object) new String[] {images.txt, images.outPng});
+        rates.add(images.txtBytes, images.pixels);
+        return new File(images.outPng).length();
+    }
+
+}
@@ -0,0 +1,68 @@
+package bench;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Synthetic test images for the benchmarks: a picture of random colors, and
+ * the same picture saved as RGB text and as png in a temporary directory,
+ * where benchmarks also write their output. Subclasses choose the sizes.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+abstract class ImageFiles {
+
+    Object picture;
+    String txt;
+    String png;
+    String outTxt;
+    String outPng;
+    long txtBytes;
+    long pngBytes;
+    long pixels;
+    private Path dir;
+
+    /**
+     * Create the picture and its files.
+     *
+     * @param size the width and height
+     * @throws Throwable if the files cannot be written
+     */
+    void create(int size) throws Throwable {
+        dir = Files.createTempDirectory("rgbbench");
+        txt = dir.resolve(size + ".txt").toString();
+        png = dir.resolve(size + ".png").toString();
+        outTxt = dir.resolve(size + ".out.txt").toString();
+        outPng = dir.resolve(size + ".out.png").toString();
+        picture = (Object) Api.NEW_PICTURE.invokeExact(size, size);
+        Random random = new Random(size);
+        int[] row = new int[size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                row[x] = random.nextInt(1 << 24);
+            }
+            Api.SET_RGB_ROWS.invokeExact(picture, y, y + 1, (Object) row);
+        }
+        Api.SAVE.invokeExact((Object) txt, picture);
+        Api.CONVERT.invokeExact((Object) new String[] {txt, png});
+        txtBytes = new File(txt).length();
+        pngBytes = new File(png).length();
+        pixels = (long) size * size;
+    }
+
+    /**
+     * Delete the files.
+     *
+     * @throws Throwable if a file cannot be deleted
+     */
+    void delete() throws Throwable {
+        for (File file : dir.toFile().listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(dir);
+    }
+
+}
@@ -0,0 +1,43 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The test images of most benchmarks, from a thumbnail up to a picture of
+ * 64 megapixels, whose RGB text is close to 1 GB.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+@State(Scope.Benchmark)
+public class Images extends ImageFiles {
+
+    @Param({"64", "1024", "8192"})
+    public int size;
+
+    /**
+     * Create the picture and its files.
+     *
+     * @throws Throwable if the files cannot be written
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        create(size);
+    }
+
+    /**
+     * Delete the files.
+     *
+     * @throws Throwable if a file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws Throwable {
+        delete();
+    }
+
+}
@@ -0,0 +1,91 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures loading RGB files in each of the ways RGBFileFormat offers, and
+ * decoding the same picture from a png for comparison.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LoadBenchmark {
+
+    private static final int THREADS =
+            Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Load with RGBFileFormat.load().
+     *
+     * @param images the test images
+     * @param rates the megabytes and megapixels per second
+     * @return the picture
+     * @throws Throwable if the file cannot be loaded
+     */
+    @Benchmark
+    public Object load(Images images, Rates rates) throws Throwable {
+        Object picture = (Object) Api.LOAD.invokeExact((Object) images.txt);
+        rates.add(images.txtBytes, images.pixels);
+        return picture;
+    }
+
+    /**
+     * Load with RGBFileFormat.loadMapped().
+     *
+     * @param images the test images
+     * @param rates the megabytes and megapixels per second
+     * @return the picture
+     * @throws Throwable if the file cannot be loaded
+     */
+    @Benchmark
+    public Object loadMapped(Images images, Rates rates) throws Throwable {
+        Object picture =
+                (Object) Api.LOAD_MAPPED.invokeExact((Object) images.txt);
+        rates.add(images.txtBytes, images.pixels);
+        return picture;
+    }
+
+    /**
+     * Load with RGBFileFormat.loadParallel() on one thread per processor.
+     *
+     * @param images the test images
+     * @param rates the megabytes and megapixels per second
+     * @return the picture
+     * @throws Throwable if the file cannot be loaded
+     */
+    @Benchmark
+    public Object loadParallel(Images images, Rates rates) throws Throwable {
+        Object picture = (Object) Api.LOAD_PARALLEL.invokeExact(
+                (Object) images.txt, THREADS);
+        rates.add(images.txtBytes, images.pixels);
+        return picture;
+    }
+
+    /**
+     * Decode the png with new Picture(String).
+     *
+     * @param images the test images
+     * @param rates the megabytes and megapixels per second
+     * @return the picture
+     * @throws Throwable if the image cannot be read
+     */
+    @Benchmark
+    public Object decodePng(Images images, Rates rates) throws Throwable {
+        Object picture = (Object) Api.DECODE.invokeExact((Object) images.png);
+        rates.add(images.pngBytes, images.pixels);
+        return picture;
+    }
+
+}
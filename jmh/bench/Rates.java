@@ -0,0 +1,43 @@
+package bench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Extra results reported next to operations per second: the megabytes of
+ * the file read or written, and the megapixels handled, per second.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Rates {
+
+    public double megabytes;
+    public double megapixels;
+
+    /**
+     * Start each iteration from zero.
+     */
+    @Setup(Level.Iteration)
+    public void clear() {
+        megabytes = 0;
+        megapixels = 0;
+    }
+
+    /**
+     * Count one operation.
+     *
+     * @param bytes the size of the file read or written
+     * @param pixels the number of pixels
+     */
+    void add(long bytes, long pixels) {
+        megabytes += bytes / 1e6;
+        megapixels += pixels / 1e6;
+    }
+
+}
@@ -0,0 +1,41 @@
+package bench;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures saving a picture as RGB text.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SaveBenchmark {
+
+    /**
+     * Save with RGBFileFormat.save().
+     *
+     * @param images the test images
+     * @param rates the megabytes and megapixels per second
+     * @return the size of the file written
+     * @throws Throwable if the file cannot be written
+     */
+    @Benchmark
+    public long save(Images images, Rates rates) throws Throwable {
+        Api.SAVE.invokeExact((Object) images.outTxt, images.picture);
+        rates.add(images.txtBytes, images.pixels);
+        return new File(images.outTxt).length();
+    }
+
+}
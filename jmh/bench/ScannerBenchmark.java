@@ -0,0 +1,96 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares load() with the original load(), which checked the file with a
+ * Scanner and a regular expression per kind of error. The original reads
+ * the file once per check and counts the pixels of each row again for every
+ * row, so only small images are used.
+ *
+ * @author Ben McCray
+ * @version 10/18/26
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ScannerBenchmark {
+
+    /**
+     * The test images of this benchmark.
+     */
+    @State(Scope.Benchmark)
+    public static class SmallImages extends ImageFiles {
+
+        @Param({"64", "128"})
+        public int size;
+
+        /**
+         * Create the picture and its files.
+         *
+         * @throws Throwable if the files cannot be written
+         */
+        @Setup(Level.Trial)
+        public void setUp() throws Throwable {
+            create(size);
+        }
+
+        /**
+         * Delete the files.
+         *
+         * @throws Throwable if a file cannot be deleted
+         */
+        @TearDown(Level.Trial)
+        public void tearDown() throws Throwable {
+            delete();
+        }
+    }
+
+    /**
+     * Load with the original Scanner-based load().
+     *
+     * @param images the test images
+     * @param rates the megabytes and megapixels per second
+     * @return the picture
+     * @throws Throwable if the file cannot be loaded
+     */
+    @Benchmark
+    public Object scanner(SmallImages images, Rates rates) throws Throwable {
+        Object picture =
+                (Object) Api.LOAD_SCANNER.invokeExact((Object) images.txt);
+        rates.add(images.txtBytes, images.pixels);
+        return picture;
+    }
+
+    /**
+     * Load with the tokenizer used by load() now.
+     *
+     * @param images the test images
+     * @param rates the megabytes and megapixels per second
+     * @return the picture
+     * @throws Throwable if the file cannot be loaded
+     */
+    @Benchmark
+    public Object tokenizer(SmallImages images, Rates rates)
+            throws Throwable {
+        Object picture = (Object) Api.LOAD.invokeExact((Object) images.txt);
+        rates.add(images.txtBytes, images.pixels);
+        return picture;
+    }
+
+}